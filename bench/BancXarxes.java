@@ -0,0 +1,173 @@
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @file BancXarxes.java
+ * @brief Fitxer que conté la classe BancXarxes
+ */
+
+/**
+ * @class BancXarxes
+ * @brief Banc de proves de rendiment de les operacions de Xarxa i GestorXarxes sobre xarxes sintètiques
+ *
+ * Per a cada forma, mida i operació es genera una xarxa amb GeneradorXarxes (sempre amb la mateixa llavor) i es
+ * mesura l'operació diverses vegades. Abans de cada mesura hi ha un pas de preparació que no es compta: canviar una
+ * demanda o una aixeta perquè la consulta següent no trobi el resultat ja calculat, o tornar a obrir les aixetes
+ * que ha tancat aixetesTancar. Les primeres mesures serveixen d'escalfament i no es mostren. Per a cada cas s'escriu la mediana i el mínim en mil·lisegons.
+ *
+ * Ús: java BancXarxes [formes] [mides] [iteracions] [operacions], amb les llistes separades per comes, p. ex.
+ * "java BancXarxes ARBRE,DAG 1000,100000 20 demanda,cabal". Sense arguments es fan totes les formes i operacions
+ * amb 1000, 10000 i 100000 nodes.
+ */
+public abstract class BancXarxes {
+    //Descripció general: Banc de proves de rendiment de les operacions sobre xarxes de distribució d'aigua
+
+    private static final long LLAVOR = 2024;
+    private static final int ESCALFAMENT = 3;
+    private static final long TEMPS_MAXIM = 10_000_000_000L; //temps màxim de mesura per cas (ns)
+
+    private static long consum; //acumula els resultats perquè el compilador no pugui descartar cap operació
+
+    /**
+     * @class Estat
+     * @brief Xarxa generada i dades auxiliars d'un cas
+     */
+    private static class Estat {
+        final GeneradorXarxes generador = new GeneradorXarxes(LLAVOR);
+        final Random random = new Random(LLAVOR);
+        GeneradorXarxes.Forma forma;
+        int mida;
+        Xarxa xarxa;
+        Origen origen;
+        Set<Node> nodes;
+        Set<Canonada> canonades;
+        Map<Terminal, Boolean> aiguaArriba;
+        Set<Node> tancades = Collections.emptySet();
+
+        void generar() {
+            xarxa = generador.generar(forma, mida);
+            origen = generador.origens().get(0);
+            nodes = new HashSet<>(generador.nodes());
+        }
+
+        Terminal terminal() {
+            List<Terminal> terminals = generador.terminals();
+            return terminals.get(random.nextInt(terminals.size()));
+        }
+
+        void canviarAixeta() {
+            Node node = generador.nodes().get(1 + random.nextInt(generador.nodes().size() - 1));
+            if (node.aixetaOberta()) xarxa.tancarAixeta(node);
+            else xarxa.obrirAixeta(node);
+        }
+    }
+
+    /**
+     * @class Cas
+     * @brief Operació mesurada, amb les formes de xarxa on té sentit i la seva preparació
+     */
+    private record Cas(String nom, boolean nomesAciclica, boolean nomesArbre,
+                       Consumer<Estat> preparar, Function<Estat, Object> executar) {
+    }
+
+    private static final List<Cas> CASOS = List.of(
+            new Cas("demanda", false, false,
+                    e -> e.xarxa.establirDemanda(e.terminal(), 1 + e.random.nextInt(20)),
+                    e -> e.xarxa.demanda(e.origen)),
+            new Cas("cabal", false, false, Estat::canviarAixeta,
+                    e -> e.xarxa.cabal(e.terminal())),
+            new Cas("teCicles", false, false, e -> { },
+                    e -> GestorXarxes.teCicles(e.xarxa, e.origen)),
+            new Cas("esArbre", false, false, e -> { },
+                    e -> GestorXarxes.esArbre(e.xarxa, e.origen)),
+            new Cas("cabalMinim", true, false, e -> { },
+                    e -> GestorXarxes.cabalMinim(e.xarxa, e.origen, 90)),
+            new Cas("excesCabal", true, false,
+                    e -> {
+                        e.canonades = new HashSet<>();
+                        CursorCanonades cursor = new CursorCanonades(e.xarxa);
+                        for (int i = 0; i < 16; i++) {
+                            cursor.situarEntrades(e.terminal());
+                            e.canonades.add(cursor.next());
+                        }
+                    },
+                    e -> GestorXarxes.excesCabal(e.xarxa, e.canonades)),
+            new Cas("aixetesTancar", false, true,
+                    e -> {
+                        for (Node node : e.tancades) e.xarxa.obrirAixeta(node);
+                        e.aiguaArriba = new HashMap<>();
+                        for (int i = 0; i < 8; i++) e.aiguaArriba.put(e.terminal(), i % 2 == 0);
+                    },
+                    e -> e.tancades = GestorXarxes.aixetesTancar(e.xarxa, e.aiguaArriba)),
+            new Cas("nodesOrdenats", false, false, e -> { },
+                    e -> GestorXarxes.nodesOrdenats(e.terminal().coordenades(), e.nodes)),
+            new Cas("nodesPropers", false, false, e -> { },
+                    e -> GestorXarxes.nodesPropers(e.xarxa, e.terminal().coordenades(), 10)),
+            new Cas("nodesDinsRadi", false, false, e -> { },
+                    e -> GestorXarxes.nodesDinsRadi(e.xarxa, e.terminal().coordenades(), 1.0)),
+            new Cas("tallMinim", false, false, Estat::canviarAixeta,
+                    e -> GestorXarxes.tallMinim(e.xarxa, e.origen))
+    );
+
+    /**
+     * @brief Executa el banc de proves
+     * @param args Formes, mides, iteracions i operacions (totes opcionals, llistes separades per comes)
+     */
+    public static void main(String[] args) {
+        List<GeneradorXarxes.Forma> formes = new ArrayList<>();
+        for (String forma : (args.length > 0 ? args[0] : "ARBRE,DAG,MALLA,MULTIORIGEN").split(",")) {
+            formes.add(GeneradorXarxes.Forma.valueOf(forma.trim().toUpperCase()));
+        }
+        String[] mides = (args.length > 1 ? args[1] : "1000,10000,100000").split(",");
+        int iteracions = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Set<String> operacions = args.length > 3 ? new HashSet<>(Arrays.asList(args[3].split(","))) : null;
+
+        System.out.printf("%-12s %9s %-14s %5s %12s %12s%n", "forma", "nodes", "operacio", "n", "mediana(ms)", "minim(ms)");
+        for (GeneradorXarxes.Forma forma : formes) {
+            for (String mida : mides) {
+                for (Cas cas : CASOS) {
+                    if (operacions != null && !operacions.contains(cas.nom())) continue;
+                    if (cas.nomesAciclica() && forma == GeneradorXarxes.Forma.MALLA) continue;
+                    if (cas.nomesArbre() && forma != GeneradorXarxes.Forma.ARBRE) continue;
+                    mesurar(cas, forma, Integer.parseInt(mida.trim()), iteracions);
+                }
+            }
+        }
+        System.out.println("(" + consum + ")");
+        System.exit(0);
+    }
+
+    /**
+     * @brief Mesura una operació sobre una forma i mida de xarxa i n'escriu el resultat
+     * @param cas Operació
+     * @param forma Forma de la xarxa
+     * @param mida Nombre de nodes de la xarxa
+     * @param iteracions Nombre de mesures (sense comptar l'escalfament)
+     * @pre iteracions > 0
+     * @post S'ha escrit una línia amb la mediana i el mínim de les mesures; si s'esgota el temps màxim abans de
+     * fer-les totes (o l'escalfament), només es tenen en compte les fetes, que sempre són com a mínim una
+     */
+    private static void mesurar(Cas cas, GeneradorXarxes.Forma forma, int mida, int iteracions) {
+        Estat estat = new Estat();
+        estat.forma = forma;
+        estat.mida = mida;
+        long[] temps = new long[iteracions];
+        int n = 0;
+        int escalfament = 0;
+        long total = 0;
+        while (n < iteracions && (n == 0 || total < TEMPS_MAXIM)) {
+            if (estat.xarxa == null) estat.generar();
+            cas.preparar().accept(estat);
+            long inici = System.nanoTime();
+            Object resultat = cas.executar().apply(estat);
+            long durada = System.nanoTime() - inici;
+            consum += Objects.hashCode(resultat);
+            total += durada;
+            if (escalfament < ESCALFAMENT && total < TEMPS_MAXIM / 2) escalfament++;
+            else temps[n++] = durada;
+        }
+        Arrays.sort(temps, 0, n);
+        System.out.printf("%-12s %9d %-14s %5d %12.3f %12.3f%n", forma, mida, cas.nom(), n, temps[n / 2] / 1e6, temps[0] / 1e6);
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @file GeneradorXarxes.java
+ * @brief Fitxer que conté la classe GeneradorXarxes
+ */
+
+/**
+ * @class GeneradorXarxes
+ * @brief Generador de xarxes de distribució d'aigua sintètiques, reproduïbles a partir d'una llavor
+ *
+ * Les xarxes es construeixen sobre un esquelet d'orígens i connexions en què cada node només rep aigua de nodes
+ * creats abans que ell (excepte a les malles, que tenen canonades de retorn), i els terminals pengen de l'esquelet.
+ * Les coordenades es reparteixen a l'atzar dins d'un quadrat d'un grau de costat, les capacitats entre 5 i 50,
+ * les demandes entre 1 i 20 i el cabal de cada origen és la part que li toca de la demanda total.
+ * Dues crides amb la mateixa llavor, forma i mida generen exactament la mateixa xarxa.
+ */
+public class GeneradorXarxes {
+    //Descripció general: Generador reproduïble de xarxes sintètiques per als bancs de proves de rendiment
+
+    /**
+     * @enum Forma
+     * @brief Forma de la xarxa generada
+     */
+    public enum Forma {
+        ARBRE,       ///< Un sol origen i cada node rep aigua d'un sol node
+        DAG,         ///< Un sol origen i els nodes poden rebre aigua de fins a tres nodes (confluències), sense cicles
+        MALLA,       ///< Quadrícula amb canonades cap a la dreta i cap avall i algunes de retorn, que formen cicles
+        MULTIORIGEN  ///< Com DAG, però amb un origen per cada mil nodes (com a mínim dos)
+    }
+
+    private static final float LATITUD = 41.5f;
+    private static final float LONGITUD = 2.5f;
+
+    private final Random random;
+    private Xarxa xarxa;
+    private final List<Origen> origens = new ArrayList<>();
+    private final List<Terminal> terminals = new ArrayList<>();
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * @brief Constructor de la classe GeneradorXarxes
+     * @param llavor Llavor del generador de nombres aleatoris
+     * @pre ---
+     * @post S'ha creat un generador que sempre produeix la mateixa seqüència de xarxes per a la mateixa llavor
+     */
+    public GeneradorXarxes(long llavor) {
+        //Pre: ---
+        //Post: S'ha creat un generador reproduïble
+        this.random = new Random(llavor);
+    }
+
+    /**
+     * @brief Genera una xarxa nova
+     * @param forma Forma de la xarxa
+     * @param nNodes Nombre total de nodes (orígens, connexions i terminals)
+     * @pre nNodes >= 4
+     * @post Retorna una xarxa connexa de nNodes nodes amb la forma donada; origens(), terminals() i nodes()
+     * en retornen els nodes fins a la crida següent
+     * @return La xarxa generada
+     */
+    public Xarxa generar(Forma forma, int nNodes) {
+        //Pre: nNodes >= 4
+        //Post: Retorna una xarxa connexa de nNodes nodes amb la forma donada
+        if (nNodes < 4) throw new IllegalArgumentException("La xarxa ha de tenir com a mínim 4 nodes");
+        xarxa = new Xarxa();
+        origens.clear();
+        terminals.clear();
+        nodes.clear();
+
+        int nTerminals = nNodes / 4;
+        int nEsquelet = nNodes - nTerminals;
+        int nOrigens = forma == Forma.MULTIORIGEN ? Math.max(2, nNodes / 1000) : 1;
+        Node[] esquelet = new Node[nEsquelet];
+        for (int i = 0; i < nEsquelet; i++) {
+            if (i < nOrigens) {
+                Origen origen = new Origen("O" + i, coordenades());
+                xarxa.afegir(origen);
+                origens.add(origen);
+                esquelet[i] = origen;
+            } else {
+                Connexio connexio = new Connexio("C" + i, coordenades());
+                xarxa.afegir(connexio);
+                esquelet[i] = connexio;
+            }
+            nodes.add(esquelet[i]);
+        }
+
+        if (forma == Forma.MALLA) connectarMalla(esquelet);
+        else connectarEsquelet(esquelet, nOrigens, forma == Forma.ARBRE ? 1 : 3);
+
+        float demandaTotal = 0;
+        for (int i = 0; i < nTerminals; i++) {
+            Terminal terminal = new Terminal("T" + i, coordenades(), 1 + random.nextInt(20));
+            xarxa.afegir(terminal);
+            xarxa.connectarAmbCanonada(esquelet[nOrigens + random.nextInt(nEsquelet - nOrigens)], terminal, capacitat());
+            terminals.add(terminal);
+            nodes.add(terminal);
+            demandaTotal += terminal.demandaActual();
+        }
+        for (Origen origen : origens) {
+            xarxa.establirCabal(origen, demandaTotal / nOrigens);
+        }
+        return xarxa;
+    }
+
+    /**
+     * @brief Retorna els orígens de l'última xarxa generada
+     * @pre S'ha generat alguna xarxa
+     * @post Retorna els orígens en ordre de creació
+     * @return La llista d'orígens
+     */
+    public List<Origen> origens() {
+        //Pre: S'ha generat alguna xarxa
+        //Post: Retorna els orígens en ordre de creació
+        return origens;
+    }
+
+    /**
+     * @brief Retorna els terminals de l'última xarxa generada
+     * @pre S'ha generat alguna xarxa
+     * @post Retorna els terminals en ordre de creació
+     * @return La llista de terminals
+     */
+    public List<Terminal> terminals() {
+        //Pre: S'ha generat alguna xarxa
+        //Post: Retorna els terminals en ordre de creació
+        return terminals;
+    }
+
+    /**
+     * @brief Retorna tots els nodes de l'última xarxa generada
+     * @pre S'ha generat alguna xarxa
+     * @post Retorna els nodes en ordre de creació
+     * @return La llista de nodes
+     */
+    public List<Node> nodes() {
+        //Pre: S'ha generat alguna xarxa
+        //Post: Retorna els nodes en ordre de creació
+        return nodes;
+    }
+
+    /**
+     * @brief Connecta cada connexió de l'esquelet amb nodes creats abans que ella
+     * @param esquelet Orígens i connexions de la xarxa
+     * @param nOrigens Nombre d'orígens (les primeres posicions d'esquelet)
+     * @param maxEntrades Nombre màxim de canonades que arriben a cada connexió
+     * @pre ---
+     * @post Cada connexió rep aigua d'entre 1 i maxEntrades nodes anteriors; les primeres connexions es reparteixen
+     * entre els orígens perquè tots tinguin alguna sortida
+     */
+    private void connectarEsquelet(Node[] esquelet, int nOrigens, int maxEntrades) {
+        for (int i = nOrigens; i < esquelet.length; i++) {
+            int entrades = 1 + random.nextInt(maxEntrades);
+            int primer = i < 2 * nOrigens ? i - nOrigens : random.nextInt(i);
+            xarxa.connectarAmbCanonada(esquelet[primer], esquelet[i], capacitat());
+            for (int k = 1; k < entrades && k < i; k++) {
+                int j = random.nextInt(i);
+                if (xarxa.retornarCapacitat(esquelet[j].id() + "-" + esquelet[i].id()) == null) {
+                    xarxa.connectarAmbCanonada(esquelet[j], esquelet[i], capacitat());
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Connecta l'esquelet com una quadrícula amb canonades de retorn
+     * @param esquelet Origen i connexions de la xarxa
+     * @pre esquelet[0] és l'únic origen
+     * @post Cada node envia aigua al de la seva dreta i al de sota; un de cada deu envia aigua també al que té dues
+     * posicions a l'esquerra (excepte l'origen), cosa que crea cicles
+     */
+    private void connectarMalla(Node[] esquelet) {
+        int amplada = Math.max(2, (int) Math.sqrt(esquelet.length));
+        for (int i = 1; i < esquelet.length; i++) {
+            int fila = i / amplada;
+            int columna = i % amplada;
+            if (columna > 0) xarxa.connectarAmbCanonada(esquelet[i - 1], esquelet[i], capacitat());
+            if (fila > 0) xarxa.connectarAmbCanonada(esquelet[i - amplada], esquelet[i], capacitat());
+        }
+        for (int i = 1; i < esquelet.length; i++) {
+            if (i > 2 && i % amplada > 1 && random.nextInt(10) == 0) {
+                // Retorn cap a l'esquerra: la canonada d'i-1 a i ja existeix, per tant es tanca el cicle amb i-2
+                xarxa.connectarAmbCanonada(esquelet[i], esquelet[i - 2], capacitat());
+            }
+        }
+    }
+
+    /**
+     * @brief Genera unes coordenades a l'atzar dins del quadrat de la xarxa
+     * @pre ---
+     * @post Retorna unes coordenades vàlides a menys d'un grau de (LATITUD, LONGITUD)
+     * @return Les coordenades
+     */
+    private Coordenades coordenades() {
+        return new Coordenades(LATITUD + random.nextFloat() - 0.5f, LONGITUD + random.nextFloat() - 0.5f);
+    }
+
+    /**
+     * @brief Genera una capacitat a l'atzar
+     * @pre ---
+     * @post Retorna un enter entre 5 i 50
+     * @return La capacitat
+     */
+    private float capacitat() {
+        return 5 + random.nextInt(46);
+    }
+}
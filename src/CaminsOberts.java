@@ -0,0 +1,103 @@
+/**
+ * @file CaminsOberts.java
+ * @brief Fitxer que conté la classe CaminsOberts
+ */
+
+/**
+ * @class CaminsOberts
+ * @brief Nodes d'una component als quals arriba aigua per un camí obert, calculats amb un sol recorregut
+ *
+ * Un node té un camí obert si té l'aixeta oberta i s'hi pot arribar des d'algun origen obert sense entrades passant
+ * només per nodes oberts. En lloc de buscar, per a cada node, un camí aigües amunt fins a un origen, es fa un sol
+ * recorregut en amplada en el sentit de l'aigua que surt alhora de tots els orígens oberts sense entrades.
+ *
+ * El resultat és vàlid mentre no canviï cap aixeta ni la topologia de la component; les marques es reutilitzen
+ * per època d'un càlcul al següent.
+ */
+public class CaminsOberts {
+    //Descripció general: Abast de l'aigua des dels orígens oberts d'una component, en un sol recorregut en amplada
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Topologia topologia;
+    private final RegistreNodes registre;
+
+    private int[] marques = new int[MIDA_INICIAL];   //època en què s'ha arribat a cada ordinal
+    private int epoca;
+    private int[] cua = new int[MIDA_INICIAL];
+
+    /**
+     * @brief Constructor de la classe CaminsOberts
+     * @param topologia Topologia de la xarxa
+     * @param registre Registre de nodes de la xarxa
+     * @pre topologia i registre comparteixen ordinals
+     * @post S'ha creat un càlcul sense cap node amb camí obert
+     */
+    public CaminsOberts(Topologia topologia, RegistreNodes registre) {
+        //Pre: topologia i registre comparteixen ordinals
+        //Post: S'ha creat un càlcul sense cap node amb camí obert
+        this.topologia = topologia;
+        this.registre = registre;
+    }
+
+    /**
+     * @brief Calcula els nodes d'una component que tenen un camí obert des d'algun origen
+     * @param membres Ordinals dels nodes de la component
+     * @param n Nombre de posicions vàlides de membres
+     * @pre membres és una component connexa de la topologia
+     * @post obert(u) diu si u té camí obert; els resultats de càlculs anteriors es descarten
+     * @return El nombre de nodes amb camí obert
+     */
+    public int calcular(int[] membres, int n) {
+        //Pre: membres és una component connexa de la topologia
+        //Post: obert(u) diu si u té camí obert
+        reservar();
+        epoca++;
+        int fi = 0;
+        for (int k = 0; k < n; k++) {
+            int u = membres[k];
+            if (registre.tipus(u) == RegistreNodes.ORIGEN && topologia.grauEntrada(u) == 0 && registre.node(u).aixetaOberta()) {
+                marques[u] = epoca;
+                cua[fi++] = u;
+            }
+        }
+        for (int cap = 0; cap < fi; cap++) {
+            int u = cua[cap];
+            for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                int v = topologia.destiSortida(i);
+                if (marques[v] != epoca && registre.node(v).aixetaOberta()) {
+                    marques[v] = epoca;
+                    cua[fi++] = v;
+                }
+            }
+        }
+        return fi;
+    }
+
+    /**
+     * @brief Diu si a un node li arriba aigua per un camí obert
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna si u pertany a l'última component calculada i té camí obert
+     * @return True si u té camí obert, false en cas contrari
+     */
+    public boolean obert(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna si u té camí obert a l'últim càlcul
+        return u < marques.length && marques[u] == epoca && epoca > 0;
+    }
+
+    /**
+     * @brief Amplia els vectors si la topologia ha crescut
+     * @pre ---
+     * @post Els vectors tenen una posició per a cada ordinal
+     */
+    private void reservar() {
+        if (marques.length < topologia.nNodes()) {
+            int mida = Math.max(topologia.nNodes(), marques.length * 2);
+            marques = new int[mida];
+            cua = new int[mida];
+            epoca = 0;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+import java.util.Arrays;
+
+/**
+ * @file ComponentsConnexes.java
+ * @brief Fitxer que conté la classe ComponentsConnexes
+ */
+
+/**
+ * @class ComponentsConnexes
+ * @brief Índex incremental de les components connexes (sense tenir en compte el sentit) d'una xarxa
+ *
+ * Es manté amb una estructura d'unió-cerca sobre els ordinals de la Topologia. Cada arrel guarda els membres
+ * de la seva component ja repartits per etiqueta de tipus (terminals, connexions i orígens), de manera que
+ * obtenir una component costa el que ocupa el resultat. En unir dues components, la llista petita s'afegeix
+ * al final de la gran. Cada arrel també guarda si la component té algun cicle dirigit (ho marca OrdreTopologic en
+ * afegir canonades), i en unir dues components la marca passa a la unió. També es compten, a cada canonada nova, els
+ * graus d'entrada i de sortida de cada node i quantes confluències (nodes amb més d'una entrada) té cada component,
+ * de manera que saber si una component té forma d'arbre costa O(1).
+ */
+public class ComponentsConnexes {
+    //Descripció general: Índex incremental de components connexes amb membres repartits per tipus
+
+    private static final int MIDA_INICIAL = 16;
+    private static final int N_TIPUS = RegistreNodes.ORIGEN + 1;
+
+    private final RegistreNodes registre;
+
+    private int[] pare = new int[MIDA_INICIAL];
+    private int[] mida = new int[MIDA_INICIAL];
+    private int[][][] membres = new int[MIDA_INICIAL][][]; //membres[arrel][tipus] = ordinals de la component
+    private int[][] nMembres = new int[MIDA_INICIAL][];    //nMembres[arrel][tipus] = ocupació de membres[arrel][tipus]
+    private boolean[] cicles = new boolean[MIDA_INICIAL];  //cicles[arrel] = si la component té algun cicle dirigit
+    private int[] confluencies = new int[MIDA_INICIAL];    //confluencies[arrel] = nodes de la component amb més d'una entrada
+    private int[] grausEntrada = new int[MIDA_INICIAL];
+    private int[] grausSortida = new int[MIDA_INICIAL];
+
+    /**
+     * @brief Constructor de la classe ComponentsConnexes
+     * @param registre Registre de nodes de la xarxa
+     * @pre registre comparteix ordinals amb la topologia i encara no té cap node
+     * @post S'ha creat un índex buit
+     */
+    public ComponentsConnexes(RegistreNodes registre) {
+        //Pre: registre comparteix ordinals amb la topologia i encara no té cap node
+        //Post: S'ha creat un índex buit
+        this.registre = registre;
+    }
+
+    /**
+     * @brief Afegeix un node nou com a component d'un sol element
+     * @param u Ordinal del node
+     * @pre u és el següent ordinal de la topologia i ja té etiqueta de tipus al registre
+     * @post u forma una component on només hi és ell
+     */
+    public void afegirNode(int u) {
+        //Pre: u és el següent ordinal de la topologia i ja té etiqueta de tipus al registre
+        //Post: u forma una component on només hi és ell
+        if (u == pare.length) {
+            int nova = pare.length * 2;
+            pare = Arrays.copyOf(pare, nova);
+            mida = Arrays.copyOf(mida, nova);
+            membres = Arrays.copyOf(membres, nova);
+            nMembres = Arrays.copyOf(nMembres, nova);
+            cicles = Arrays.copyOf(cicles, nova);
+            confluencies = Arrays.copyOf(confluencies, nova);
+            grausEntrada = Arrays.copyOf(grausEntrada, nova);
+            grausSortida = Arrays.copyOf(grausSortida, nova);
+        }
+        inicialitzar(u);
+    }
+
+    /**
+     * @brief Construeix de cop l'índex de tota una topologia
+     * @param nNodes Nombre de nodes
+     * @param origens Ordinal del node d'inici de cada canonada
+     * @param destins Ordinal del node de destí de cada canonada
+     * @pre L'índex és buit, el registre ja té els nodes 0..nNodes-1 i els dos vectors tenen la mateixa mida
+     * @post L'índex és el mateix que afegint els nodes i unint les canonades d'un en un, amb els membres de cada tipus
+     * per ordre d'ordinal; cap component consta com a cíclica
+     */
+    public void carregar(int nNodes, int[] origens, int[] destins) {
+        //Pre: L'índex és buit i el registre ja té els nodes
+        //Post: L'índex correspon a les canonades donades
+        int capacitat = Math.max(MIDA_INICIAL, nNodes);
+        pare = new int[capacitat];
+        mida = new int[capacitat];
+        membres = new int[capacitat][][];
+        nMembres = new int[capacitat][];
+        cicles = new boolean[capacitat];
+        confluencies = new int[capacitat];
+        grausEntrada = new int[capacitat];
+        grausSortida = new int[capacitat];
+        for (int u = 0; u < nNodes; u++) {
+            pare[u] = u;
+            mida[u] = 1;
+        }
+        // Primer només s'uneixen les arrels; els membres es reparteixen després, ja amb la mida definitiva
+        for (int c = 0; c < origens.length; c++) {
+            grausSortida[origens[c]]++;
+            grausEntrada[destins[c]]++;
+            int a = arrel(origens[c]);
+            int b = arrel(destins[c]);
+            if (a == b) continue;
+            if (mida[a] < mida[b]) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            pare[b] = a;
+            mida[a] += mida[b];
+        }
+        for (int u = 0; u < nNodes; u++) {
+            int r = arrel(u);
+            if (nMembres[r] == null) nMembres[r] = new int[N_TIPUS];
+            nMembres[r][registre.tipus(u)]++;
+            if (grausEntrada[u] > 1) confluencies[r]++;
+        }
+        for (int u = 0; u < nNodes; u++) {
+            if (pare[u] != u) continue;
+            membres[u] = new int[N_TIPUS][];
+            for (byte tipus = 0; tipus < N_TIPUS; tipus++) {
+                membres[u][tipus] = new int[nMembres[u][tipus]];
+            }
+            Arrays.fill(nMembres[u], 0);
+        }
+        for (int u = 0; u < nNodes; u++) {
+            afegirMembre(arrel(u), registre.tipus(u), u);
+        }
+    }
+
+    /**
+     * @brief Uneix les components dels dos extrems d'una canonada nova
+     * @param u Ordinal del node d'inici de la canonada
+     * @param v Ordinal del node de destí de la canonada
+     * @pre u i v són ordinals vàlids
+     * @post u i v pertanyen a la mateixa component, u té una sortida més i v una entrada més
+     */
+    public void unir(int u, int v) {
+        //Pre: u i v són ordinals vàlids
+        //Post: u i v pertanyen a la mateixa component i els seus graus compten la canonada
+        comptarCanonada(u, v);
+    }
+
+    /**
+     * @brief Canvia l'etiqueta de tipus amb què es llista un node
+     * @param u Ordinal del node
+     * @param anterior Etiqueta de tipus que tenia el node
+     * @pre u és un ordinal vàlid i el registre ja té la nova etiqueta de u
+     * @post u apareix entre els membres del seu nou tipus, al final
+     */
+    public void canviarTipus(int u, byte anterior) {
+        //Pre: u és un ordinal vàlid i el registre ja té la nova etiqueta de u
+        //Post: u apareix entre els membres del seu nou tipus, al final
+        int r = arrel(u);
+        int[] llista = membres[r][anterior];
+        int n = nMembres[r][anterior];
+        int i = 0;
+        while (llista[i] != u) i++;
+        System.arraycopy(llista, i + 1, llista, i, n - i - 1);
+        nMembres[r][anterior] = n - 1;
+        afegirMembre(r, registre.tipus(u), u);
+    }
+
+    /**
+     * @brief Marca que la component d'un node té algun cicle dirigit
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid i una canonada de la seva component tanca un cicle
+     * @post teCicle(u) retorna true, i també per a qualsevol component a la qual s'uneixi la de u
+     */
+    public void marcarCicle(int u) {
+        //Pre: u és un ordinal vàlid i una canonada de la seva component tanca un cicle
+        //Post: La component de u consta com a cíclica
+        cicles[component(u)] = true;
+    }
+
+    /**
+     * @brief Diu si la component d'un node té algun cicle dirigit
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna si la component de u s'ha marcat com a cíclica
+     * @return True si la component té cicles, false en cas contrari
+     */
+    public boolean teCicle(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna si la component de u té cicles
+        return cicles[component(u)];
+    }
+
+    /**
+     * @brief Retorna el grau d'entrada d'un node
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna el nombre de canonades que arriben a u
+     * @return El grau d'entrada de u
+     */
+    public int grauEntrada(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna el nombre de canonades que arriben a u
+        return grausEntrada[u];
+    }
+
+    /**
+     * @brief Retorna el grau de sortida d'un node
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna el nombre de canonades que surten de u
+     * @return El grau de sortida de u
+     */
+    public int grauSortida(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna el nombre de canonades que surten de u
+        return grausSortida[u];
+    }
+
+    /**
+     * @brief Retorna quantes confluències té una component
+     * @param u Ordinal d'un node de la component
+     * @pre u és un ordinal vàlid
+     * @post Retorna quants nodes de la component de u tenen més d'una canonada d'entrada; si no n'hi ha cap, la
+     * component té forma d'arbre
+     * @return El nombre de confluències de la component de u
+     */
+    public int nConfluencies(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna quants nodes de la component de u tenen més d'una entrada
+        return confluencies[component(u)];
+    }
+
+    /**
+     * @brief Retorna el representant de la component d'un node
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna l'arrel de la component de u; dos nodes són a la mateixa component si i només si tenen la mateixa arrel
+     * @return L'arrel de la component de u
+     */
+    public int component(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna l'arrel de la component de u
+        return arrel(u);
+    }
+
+    /**
+     * @brief Retorna el nombre de nodes d'una component
+     * @param u Ordinal d'un node de la component
+     * @pre u és un ordinal vàlid
+     * @post Retorna quants nodes té la component de u
+     * @return La mida de la component de u
+     */
+    public int mida(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna quants nodes té la component de u
+        return mida[component(u)];
+    }
+
+    /**
+     * @brief Retorna quants nodes d'un tipus té una component
+     * @param u Ordinal d'un node de la component
+     * @param tipus Etiqueta de tipus
+     * @pre u és un ordinal vàlid i tipus és una etiqueta de RegistreNodes
+     * @post Retorna quants nodes de tipus té la component de u
+     * @return El nombre de membres del tipus
+     */
+    public int nMembres(int u, byte tipus) {
+        //Pre: u és un ordinal vàlid i tipus és una etiqueta de RegistreNodes
+        //Post: Retorna quants nodes de tipus té la component de u
+        return nMembres[component(u)][tipus];
+    }
+
+    /**
+     * @brief Retorna el vector de membres d'un tipus d'una component
+     * @param u Ordinal d'un node de la component
+     * @param tipus Etiqueta de tipus
+     * @pre u és un ordinal vàlid i tipus és una etiqueta de RegistreNodes
+     * @post Retorna el vector intern; només són vàlides les primeres nMembres(u, tipus) posicions i no s'ha de modificar
+     * @return Els ordinals dels membres del tipus
+     */
+    public int[] membres(int u, byte tipus) {
+        //Pre: u és un ordinal vàlid i tipus és una etiqueta de RegistreNodes
+        //Post: Retorna el vector intern de membres del tipus
+        return membres[component(u)][tipus];
+    }
+
+    /**
+     * @brief Copia tots els membres d'una component, agrupats per tipus
+     * @param u Ordinal d'un node de la component
+     * @param desti Vector on es copien els membres
+     * @pre u és un ordinal vàlid i desti té com a mínim mida(u) posicions
+     * @post desti conté els terminals, les connexions i els orígens de la component de u, en aquest ordre
+     * @return El nombre de membres copiats
+     */
+    public int copiarMembres(int u, int[] desti) {
+        //Pre: u és un ordinal vàlid i desti té prou posicions
+        //Post: desti conté els membres de la component de u agrupats per tipus
+        int r = component(u);
+        int n = 0;
+        for (byte tipus = 0; tipus < N_TIPUS; tipus++) {
+            System.arraycopy(membres[r][tipus], 0, desti, n, nMembres[r][tipus]);
+            n += nMembres[r][tipus];
+        }
+        return n;
+    }
+
+    /**
+     * @brief Crea la component d'un sol element d'un node
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post u és arrel d'una component on només hi és ell
+     */
+    private void inicialitzar(int u) {
+        pare[u] = u;
+        mida[u] = 1;
+        cicles[u] = false;
+        confluencies[u] = 0;
+        grausEntrada[u] = 0;
+        grausSortida[u] = 0;
+        membres[u] = new int[N_TIPUS][0];
+        nMembres[u] = new int[N_TIPUS];
+        afegirMembre(u, registre.tipus(u), u);
+    }
+
+    /**
+     * @brief Afegeix un membre a les llistes d'una arrel
+     * @param r Arrel de la component
+     * @param tipus Etiqueta de tipus del membre
+     * @param u Ordinal del membre
+     * @pre r és una arrel
+     * @post u és l'últim membre de tipus de la component de r
+     */
+    private void afegirMembre(int r, byte tipus, int u) {
+        int[] llista = membres[r][tipus];
+        int n = nMembres[r][tipus];
+        if (n == llista.length) llista = membres[r][tipus] = Arrays.copyOf(llista, Math.max(2, n * 2));
+        llista[n] = u;
+        nMembres[r][tipus] = n + 1;
+    }
+
+    /**
+     * @brief Busca l'arrel de la component d'un node, escurçant el camí
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna l'arrel de u; els nodes del camí apunten a l'avi
+     * @return L'arrel de u
+     */
+    private int arrel(int u) {
+        while (pare[u] != u) {
+            pare[u] = pare[pare[u]];
+            u = pare[u];
+        }
+        return u;
+    }
+
+    /**
+     * @brief Uneix dues components afegint els membres de la petita al final dels de la gran
+     * @param a Arrel d'una component
+     * @param b Arrel de l'altra component
+     * @pre a i b són arrels
+     * @post a i b pertanyen a la mateixa component
+     * @return L'arrel de la component unida
+     */
+    private int unirArrels(int a, int b) {
+        if (a == b) return a;
+        if (mida[a] < mida[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        pare[b] = a;
+        mida[a] += mida[b];
+        cicles[a] |= cicles[b];
+        confluencies[a] += confluencies[b];
+        for (byte tipus = 0; tipus < N_TIPUS; tipus++) {
+            int[] llista = membres[b][tipus];
+            for (int i = 0; i < nMembres[b][tipus]; i++) {
+                afegirMembre(a, tipus, llista[i]);
+            }
+        }
+        membres[b] = null;
+        nMembres[b] = null;
+        return a;
+    }
+
+    /**
+     * @brief Compta una canonada als graus dels seus extrems i uneix les seves components
+     * @param u Ordinal del node d'inici de la canonada
+     * @param v Ordinal del node de destí de la canonada
+     * @pre u i v són ordinals vàlids
+     * @post u i v pertanyen a la mateixa component, els graus compten la canonada i, si v passa a tenir dues
+     * entrades, la component té una confluència més
+     */
+    private void comptarCanonada(int u, int v) {
+        grausSortida[u]++;
+        grausEntrada[v]++;
+        int r = unirArrels(arrel(u), arrel(v));
+        if (grausEntrada[v] == 2) confluencies[r]++;
+    }
+}
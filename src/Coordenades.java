@@ -10,8 +10,15 @@
 
 public class Coordenades {
     //Descripció general: Coordenades geogràfiques (latitud, longitud)
+    private static final double RADI_TERRA = 6371.0; // Radi de la Terra en quilòmetres
+
     private float latitud;
     private float longitud;
+    //Geometria precalculada en crear les coordenades: cosinus de la latitud i punt de l'esfera de radi 1
+    private double cosLatitud;
+    private double x;
+    private double y;
+    private double z;
 
     /**
      * @brief Constructor de la classe Coordenades
@@ -45,6 +52,8 @@ public class Coordenades {
 
         // Passar la longitud a negatiu en el cas de que sigui cap a l'oest
         if (direccioLongitud == 'W') this.longitud *= -1;
+
+        precalcular();
     }
 
     /**
@@ -61,6 +70,7 @@ public class Coordenades {
         if(latitud < -90 || latitud > 90 || longitud < -180 || longitud > 180) throw new IllegalArgumentException("Coordenades invàlides.");
         this.latitud = latitud;
         this.longitud = longitud;
+        precalcular();
     }
 
     /**
@@ -73,16 +83,103 @@ public class Coordenades {
     public double distancia(Coordenades c) {
         //Pre: ---
         //Post: Retorna la distància entre aquestes coordenades i c, expressada en km
-        double radiTerra = 6371.0; // Radi de la Terra en quilòmetres
         double dLat = Math.toRadians(c.latitud - this.latitud);
         double dLon = Math.toRadians(c.longitud - this.longitud);
-        double lat1 = Math.toRadians(this.latitud);
-        double lat2 = Math.toRadians(c.latitud);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.sin(dLon / 2) * Math.sin(dLon / 2) * Math.cos(lat1) * Math.cos(lat2);
+        // Els cosinus de les latituds ja estan calculats: el resultat és el mateix que calculant-los aquí
+        double a = sinLat * sinLat + sinLon * sinLon * this.cosLatitud * c.cosLatitud;
         double cHav = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
-        return radiTerra * cHav;
+        return RADI_TERRA * cHav;
+    }
+
+    /**
+     * @brief Calcula la corda sobre l'esfera de radi 1 fins a molts punts alhora
+     * @param c Les coordenades de referència
+     * @param xs Primera component del vector unitari de cada punt
+     * @param ys Segona component del vector unitari de cada punt
+     * @param zs Tercera component del vector unitari de cada punt
+     * @param n Nombre de punts
+     * @param cordes Vector on es guarden les cordes
+     * @param desde Primera posició de cordes on es guarda el resultat
+     * @pre Els vectors tenen com a mínim n posicions, i cordes com a mínim desde + n
+     * @post cordes[desde + i] és la corda entre c i el punt i, per a 0 <= i < n
+     */
+    public static void cordes(Coordenades c, double[] xs, double[] ys, double[] zs, int n, double[] cordes, int desde) {
+        //Pre: Els vectors tenen prou posicions
+        //Post: cordes[desde + i] és la corda entre c i el punt i
+        double qx = c.x;
+        double qy = c.y;
+        double qz = c.z;
+        // Bucle sense dependències entre iteracions sobre vectors primitius, que el compilador JIT pot vectoritzar
+        for (int i = 0; i < n; i++) {
+            double dx = xs[i] - qx;
+            double dy = ys[i] - qy;
+            double dz = zs[i] - qz;
+            cordes[desde + i] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+
+    /**
+     * @brief Calcula la distància fins a molts punts alhora
+     * @param c Les coordenades de referència
+     * @param xs Primera component del vector unitari de cada punt
+     * @param ys Segona component del vector unitari de cada punt
+     * @param zs Tercera component del vector unitari de cada punt
+     * @param n Nombre de punts
+     * @param distancies Vector on es guarden les distàncies
+     * @pre Els vectors tenen com a mínim n posicions
+     * @post distancies[i] és la distància en km entre c i el punt i sobre l'esfera, per a 0 <= i < n
+     */
+    public static void distancies(Coordenades c, double[] xs, double[] ys, double[] zs, int n, double[] distancies) {
+        //Pre: Els vectors tenen com a mínim n posicions
+        //Post: distancies[i] és la distància en km entre c i el punt i
+        cordes(c, xs, ys, zs, n, distancies, 0);
+        for (int i = 0; i < n; i++) {
+            distancies[i] = distanciaCorda(distancies[i]);
+        }
+    }
+
+    /**
+     * @brief Converteix una corda sobre l'esfera de radi 1 en una distància sobre la Terra
+     * @param corda La corda
+     * @pre 0 <= corda <= 2
+     * @post Retorna la longitud en km de l'arc de la superfície terrestre que correspon a la corda
+     * @return La distància en km
+     */
+    public static double distanciaCorda(double corda) {
+        //Pre: 0 <= corda <= 2
+        //Post: Retorna la distància en km corresponent a la corda
+        return 2 * RADI_TERRA * Math.asin(Math.min(1.0, corda / 2));
+    }
+
+    /**
+     * @brief Retorna la corda sobre l'esfera de radi 1 que correspon a una distància sobre la Terra
+     * @param distancia La distància en km
+     * @pre distancia >= 0
+     * @post Retorna la corda de l'arc de longitud distancia (la més gran, 2, si l'arc és més llarg que mitja volta)
+     * @return La corda
+     */
+    public static double cordaDistancia(double distancia) {
+        //Pre: distancia >= 0
+        //Post: Retorna la corda corresponent a la distància
+        return 2 * Math.sin(Math.min(distancia / RADI_TERRA, Math.PI) / 2);
+    }
+
+    /**
+     * @brief Precalcula la geometria de les coordenades
+     * @pre La latitud i la longitud ja tenen el valor definitiu
+     * @post cosLatitud, x, y i z corresponen a la latitud i la longitud
+     */
+    private void precalcular() {
+        double lat = Math.toRadians(latitud);
+        double lon = Math.toRadians(longitud);
+        cosLatitud = Math.cos(lat);
+        x = cosLatitud * Math.cos(lon);
+        y = cosLatitud * Math.sin(lon);
+        z = Math.sin(lat);
     }
 
     /**
@@ -94,7 +191,7 @@ public class Coordenades {
      * @post Retorna el valor en graus a decimals
      * @return El valor en graus decimals
      */
-    private float convertirGrausDecimals(int graus, int minuts, float segons) {
+    public static float convertirGrausDecimals(int graus, int minuts, float segons) {
         //Pre: 0 <= graus <= 60, 0 <= minuts <= 60, 0 <= segons <= 60
         //Post: Retorna el valor en graus a decimals.
         return graus + minuts / 60.0f + segons / 3600.0f;
@@ -124,4 +221,40 @@ public class Coordenades {
         return longitud;
     }
 
+    /**
+     * @brief Retorna la primera component del punt de l'esfera de radi 1
+     * @pre ---
+     * @post Retorna cos(latitud) * cos(longitud)
+     * @return La primera component
+     */
+    public double X() {
+        //Pre: ---
+        //Post: Retorna la primera component del vector unitari
+        return x;
+    }
+
+    /**
+     * @brief Retorna la segona component del punt de l'esfera de radi 1
+     * @pre ---
+     * @post Retorna cos(latitud) * sin(longitud)
+     * @return La segona component
+     */
+    public double Y() {
+        //Pre: ---
+        //Post: Retorna la segona component del vector unitari
+        return y;
+    }
+
+    /**
+     * @brief Retorna la tercera component del punt de l'esfera de radi 1
+     * @pre ---
+     * @post Retorna sin(latitud)
+     * @return La tercera component
+     */
+    public double Z() {
+        //Pre: ---
+        //Post: Retorna la tercera component del vector unitari
+        return z;
+    }
+
 }
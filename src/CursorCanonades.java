@@ -0,0 +1,175 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @file CursorCanonades.java
+ * @brief Fitxer que conté la classe CursorCanonades
+ */
+
+/**
+ * @class CursorCanonades
+ * @brief Cursor reutilitzable sobre les canonades que surten o entren a un node d'una xarxa
+ *
+ * Un mateix cursor es pot situar successivament sobre nodes diferents, de manera que els recorreguts
+ * que visiten molts nodes no creen cap objecte per node visitat. Ús típic:
+ * cursor.situarSortides(node); while (cursor.avancar()) { ... cursor.canonada() ... }
+ * També és l'iterador que retornen Xarxa.sortides i Xarxa.entrades.
+ */
+public class CursorCanonades implements Iterator<Canonada> {
+    //Descripció general: Cursor reutilitzable sobre les canonades d'un node
+    private final Xarxa xarxa;
+    private final Topologia topologia;
+    private boolean sortides;
+    private int inici;
+    private int posicio;
+    private int fi;
+
+    /**
+     * @brief Constructor de la classe CursorCanonades
+     * @param xarxa Xarxa sobre la qual es mourà el cursor
+     * @pre xarxa != null
+     * @post S'ha creat un cursor no situat sobre cap node
+     */
+    public CursorCanonades(Xarxa xarxa) {
+        //Pre: xarxa != null
+        //Post: S'ha creat un cursor no situat sobre cap node
+        this.xarxa = xarxa;
+        this.topologia = xarxa.topologia();
+        this.inici = 0;
+        this.posicio = 0;
+        this.fi = 0;
+    }
+
+    /**
+     * @brief Situa el cursor abans de la primera canonada que surt del node
+     * @param node Node del qual es volen recórrer les sortides
+     * @pre node pertany a la xarxa
+     * @post El cursor recorrerà les canonades que surten de node
+     * @throws NoSuchElementException si node no pertany a la xarxa
+     */
+    public void situarSortides(Node node) {
+        //Pre: node pertany a la xarxa
+        //Post: El cursor recorrerà les canonades que surten de node
+        int u = xarxa.ordinal(node);
+        this.sortides = true;
+        this.inici = topologia.iniciSortides(u);
+        this.posicio = inici - 1;
+        this.fi = topologia.fiSortides(u);
+    }
+
+    /**
+     * @brief Situa el cursor abans de la primera canonada que entra al node
+     * @param node Node del qual es volen recórrer les entrades
+     * @pre node pertany a la xarxa
+     * @post El cursor recorrerà les canonades que entren a node
+     * @throws NoSuchElementException si node no pertany a la xarxa
+     */
+    public void situarEntrades(Node node) {
+        //Pre: node pertany a la xarxa
+        //Post: El cursor recorrerà les canonades que entren a node
+        int v = xarxa.ordinal(node);
+        this.sortides = false;
+        this.inici = topologia.iniciEntrades(v);
+        this.posicio = inici - 1;
+        this.fi = topologia.fiEntrades(v);
+    }
+
+    /**
+     * @brief Avança el cursor a la canonada següent
+     * @pre El cursor està situat sobre un node
+     * @post Si queden canonades, el cursor apunta a la següent
+     * @return True si el cursor apunta a una canonada, false si ja s'han recorregut totes
+     */
+    public boolean avancar() {
+        //Pre: El cursor està situat sobre un node
+        //Post: Si queden canonades, el cursor apunta a la següent
+        if (posicio < fi) posicio++;
+        return posicio < fi;
+    }
+
+    /**
+     * @brief Diu si queden canonades per recórrer
+     * @pre El cursor està situat sobre un node
+     * @post Retorna si una crida a next() trobaria una canonada, sense moure el cursor
+     * @return True si queden canonades, false en cas contrari
+     */
+    @Override
+    public boolean hasNext() {
+        //Pre: El cursor està situat sobre un node
+        //Post: Retorna si queden canonades, sense moure el cursor
+        return posicio + 1 < fi;
+    }
+
+    /**
+     * @brief Avança el cursor i retorna la canonada següent
+     * @pre El cursor està situat sobre un node
+     * @post El cursor apunta a la canonada següent
+     * @return La canonada següent
+     * @throws NoSuchElementException si ja s'han recorregut totes les canonades
+     */
+    @Override
+    public Canonada next() {
+        //Pre: El cursor està situat sobre un node
+        //Post: El cursor apunta a la canonada següent, que es retorna
+        if (!avancar()) throw new NoSuchElementException();
+        return canonada();
+    }
+
+    /**
+     * @brief Retorna la canonada on apunta el cursor
+     * @pre L'última crida a avancar() ha retornat true
+     * @post Retorna la canonada on apunta el cursor
+     * @return La canonada actual
+     */
+    public Canonada canonada() {
+        //Pre: L'última crida a avancar() ha retornat true
+        //Post: Retorna la canonada on apunta el cursor
+        return xarxa.canonada(indexCanonada());
+    }
+
+    /**
+     * @brief Retorna el node de l'altre extrem de la canonada on apunta el cursor
+     * @pre L'última crida a avancar() ha retornat true
+     * @post Retorna el node destí si es recorren sortides, o el node d'inici si es recorren entrades
+     * @return El node veí
+     */
+    public Node vei() {
+        //Pre: L'última crida a avancar() ha retornat true
+        //Post: Retorna el node veí a través de la canonada actual
+        comprovarPosicio();
+        return xarxa.nodeOrdinal(sortides ? topologia.destiSortida(posicio) : topologia.origenEntrada(posicio));
+    }
+
+    /**
+     * @brief Retorna la capacitat de la canonada on apunta el cursor
+     * @pre L'última crida a avancar() ha retornat true
+     * @post Retorna la capacitat de la canonada actual
+     * @return La capacitat de la canonada actual
+     */
+    public float capacitat() {
+        //Pre: L'última crida a avancar() ha retornat true
+        //Post: Retorna la capacitat de la canonada actual
+        return topologia.capacitat(indexCanonada());
+    }
+
+    /**
+     * @brief Retorna l'índex a la topologia de la canonada on apunta el cursor
+     * @pre L'última crida a avancar() ha retornat true
+     * @post Retorna l'índex de la canonada actual
+     * @return L'índex de la canonada actual
+     */
+    private int indexCanonada() {
+        comprovarPosicio();
+        return sortides ? topologia.canonadaSortida(posicio) : topologia.canonadaEntrada(posicio);
+    }
+
+    /**
+     * @brief Comprova que el cursor apunta a una canonada
+     * @pre ---
+     * @post No fa res si el cursor apunta a una canonada
+     * @throws NoSuchElementException si el cursor no apunta a cap canonada
+     */
+    private void comprovarPosicio() {
+        if (posicio < inici || posicio >= fi) throw new NoSuchElementException("El cursor no apunta a cap canonada");
+    }
+}
@@ -0,0 +1,251 @@
+import java.util.Arrays;
+
+/**
+ * @file IndexArbre.java
+ * @brief Fitxer que conté la classe IndexArbre
+ */
+
+/**
+ * @class IndexArbre
+ * @brief Índex d'una component en forma d'arbre arrelat, per respondre consultes d'avantpassats en temps logarítmic
+ *
+ * L'arrel és el node sense entrades i el pare de cada node és l'origen de la seva única canonada d'entrada. Un
+ * recorregut en profunditat des de l'arrel dona a cada node la seva profunditat i el seu interval del recorregut
+ * d'Euler (l'entrada i l'última entrada del seu subarbre), de manera que saber si un node és avantpassat d'un altre
+ * és comparar dos intervals. Per als avantpassats comuns es guarda, per a cada node, l'avantpassat que té 2^j nivells
+ * per sobre (salts binaris): l'avantpassat comú més profund de dos nodes es troba amb O(log n) salts.
+ *
+ * Com que l'aigua només baixa per l'arbre, a un node li arriba aigua per un camí obert si l'arrel és un origen i tots
+ * els nodes del camí des de l'arrel (ell inclòs) tenen l'aixeta oberta; l'índex també ho guarda per a cada node.
+ * Cada node recorda la versió de la xarxa amb què s'ha calculat la seva component, i l'índex es reaprofita mentre
+ * no canviï la topologia ni cap aixeta.
+ */
+public class IndexArbre {
+    //Descripció general: Arbre arrelat amb recorregut d'Euler i salts binaris per a consultes d'avantpassats
+
+    public static final int CAP = -1; ///< Pare de l'arrel
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Topologia topologia;
+    private final RegistreNodes registre;
+    private final Recorregut recorregut;
+
+    private int[] versions = new int[MIDA_INICIAL];      //versió de la xarxa amb què s'ha calculat cada ordinal (0 = mai)
+    private int[] profunditats = new int[MIDA_INICIAL];
+    private int[] entrades = new int[MIDA_INICIAL];      //posició de cada ordinal al recorregut d'Euler (-1 si no hi és)
+    private int[] sortides = new int[MIDA_INICIAL];      //última posició del subarbre de cada ordinal
+    private boolean[] oberts = new boolean[MIDA_INICIAL]; //si a cada ordinal li arriba aigua per un camí obert
+    private int[][] salts = new int[1][MIDA_INICIAL];    //salts[j][u] = avantpassat de u 2^j nivells per sobre (CAP si no n'hi ha)
+    private int[] ordre = new int[MIDA_INICIAL];         //nodes d'un arbre en l'ordre d'un recorregut
+
+    /**
+     * @brief Constructor de la classe IndexArbre
+     * @param topologia Topologia de la xarxa
+     * @param registre Registre de nodes de la xarxa
+     * @pre topologia i registre comparteixen ordinals
+     * @post S'ha creat un índex sense cap component calculada
+     */
+    public IndexArbre(Topologia topologia, RegistreNodes registre) {
+        //Pre: topologia i registre comparteixen ordinals
+        //Post: S'ha creat un índex sense cap component calculada
+        this.topologia = topologia;
+        this.registre = registre;
+        this.recorregut = new Recorregut(topologia);
+    }
+
+    /**
+     * @brief Diu si l'índex de la component d'un node és vàlid per a una versió de la xarxa
+     * @param u Ordinal del node
+     * @param versio Versió actual de la xarxa (> 0)
+     * @pre u és un ordinal vàlid
+     * @post Retorna si la component de u s'ha calculat amb aquesta versió
+     * @return True si es pot reaprofitar l'índex, false si cal calcular-lo
+     */
+    public boolean calculat(int u, int versio) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna si la component de u s'ha calculat amb aquesta versió
+        return u < versions.length && versions[u] == versio;
+    }
+
+    /**
+     * @brief Calcula l'índex d'una component
+     * @param membres Ordinals dels nodes de la component
+     * @param n Nombre de posicions vàlides de membres
+     * @param versio Versió actual de la xarxa (> 0)
+     * @pre membres és una component connexa de la topologia on cap node té més d'una canonada d'entrada
+     * @post Els nodes accessibles des d'un node sense entrades tenen pare, profunditat, interval d'Euler i salts
+     * binaris; la resta (només n'hi ha si la component té un cicle) no consten a l'arbre. Els resultats queden
+     * associats a versio
+     */
+    public void calcular(int[] membres, int n, int versio) {
+        //Pre: membres és una component connexa on cap node té més d'una canonada d'entrada
+        //Post: L'índex de la component queda associat a versio
+        reservar();
+        int[] pares = salts[0];
+        int maxProfunditat = 0;
+        int posicio = 0;
+        for (int k = 0; k < n; k++) {
+            int u = membres[k];
+            versions[u] = versio;
+            entrades[u] = -1;
+            oberts[u] = false;
+            pares[u] = CAP;
+        }
+        for (int k = 0; k < n; k++) {
+            int arrel = membres[k];
+            if (topologia.grauEntrada(arrel) > 0) continue;
+            profunditats[arrel] = 0;
+            oberts[arrel] = registre.tipus(arrel) == RegistreNodes.ORIGEN && registre.node(arrel).aixetaOberta();
+            // El preordre dona l'entrada de cada node al recorregut d'Euler, i cada pare hi surt abans que els fills
+            int m = recorregut.preordre(arrel, Recorregut.SORTIDES, ordre);
+            for (int p = 0; p < m; p++) {
+                int u = ordre[p];
+                entrades[u] = posicio + p;
+                for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                    int v = topologia.destiSortida(i);
+                    pares[v] = u;
+                    profunditats[v] = profunditats[u] + 1;
+                    maxProfunditat = Math.max(maxProfunditat, profunditats[v]);
+                    oberts[v] = oberts[u] && registre.node(v).aixetaOberta();
+                }
+            }
+            posicio += m;
+            // El postordre dona cada node després de tot el seu subarbre: la sortida és la més gran de la dels fills
+            recorregut.postordre(arrel, Recorregut.SORTIDES, ordre);
+            for (int p = 0; p < m; p++) {
+                int u = ordre[p];
+                sortides[u] = entrades[u];
+                for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                    sortides[u] = Math.max(sortides[u], sortides[topologia.destiSortida(i)]);
+                }
+            }
+        }
+
+        int nivells = 32 - Integer.numberOfLeadingZeros(Math.max(1, maxProfunditat));
+        if (salts.length < nivells) {
+            int[][] nous = Arrays.copyOf(salts, nivells);
+            for (int j = salts.length; j < nivells; j++) {
+                //Els components ja calculats no passen per aquests nivells: han de quedar sense avantpassat, no apuntant al node 0
+                nous[j] = new int[pares.length];
+                Arrays.fill(nous[j], CAP);
+            }
+            salts = nous;
+        }
+        // Es calculen tots els nivells reservats, no només els que calen aquí, perquè les consultes els recorren tots
+        for (int j = 1; j < salts.length; j++) {
+            int[] anteriors = salts[j - 1];
+            int[] actuals = salts[j];
+            for (int k = 0; k < n; k++) {
+                int u = membres[k];
+                actuals[u] = anteriors[u] == CAP ? CAP : anteriors[anteriors[u]];
+            }
+        }
+    }
+
+    /**
+     * @brief Retorna el pare d'un node
+     * @param u Ordinal d'un node de l'arbre
+     * @pre u pertany a una component calculada
+     * @post Retorna l'origen de l'única canonada d'entrada de u, o CAP si u és l'arrel
+     * @return L'ordinal del pare, o CAP
+     */
+    public int pare(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna el pare de u, o CAP si és l'arrel
+        return salts[0][u];
+    }
+
+    /**
+     * @brief Retorna la profunditat d'un node
+     * @param u Ordinal d'un node de l'arbre
+     * @pre u pertany a una component calculada i és accessible des de l'arrel
+     * @post Retorna el nombre de canonades entre l'arrel i u
+     * @return La profunditat de u
+     */
+    public int profunditat(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna la profunditat de u
+        return profunditats[u];
+    }
+
+    /**
+     * @brief Retorna la posició d'un node al recorregut d'Euler
+     * @param u Ordinal d'un node de l'arbre
+     * @pre u pertany a una component calculada
+     * @post Retorna la posició en què el recorregut en profunditat ha arribat a u, o -1 si u no és a l'arbre
+     * @return La posició de u
+     */
+    public int entrada(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna la posició de u al recorregut d'Euler
+        return entrades[u];
+    }
+
+    /**
+     * @brief Diu si a un node li arriba aigua per un camí obert
+     * @param u Ordinal d'un node de l'arbre
+     * @pre u pertany a una component calculada
+     * @post Retorna si l'arrel és un origen obert i tots els nodes del camí fins a u tenen l'aixeta oberta
+     * @return True si u té camí obert, false en cas contrari
+     */
+    public boolean obert(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna si u té camí obert
+        return oberts[u];
+    }
+
+    /**
+     * @brief Diu si un node és avantpassat d'un altre
+     * @param a Ordinal d'un node de l'arbre
+     * @param u Ordinal d'un node de l'arbre
+     * @pre a i u pertanyen a la mateixa component calculada i són a l'arbre
+     * @post Retorna si a és al camí de l'arrel a u (u inclòs)
+     * @return True si a és avantpassat de u o és u, false en cas contrari
+     */
+    public boolean esAvantpassat(int a, int u) {
+        //Pre: a i u són a l'arbre d'una mateixa component calculada
+        //Post: Retorna si a és al camí de l'arrel a u
+        return entrades[a] <= entrades[u] && entrades[u] <= sortides[a];
+    }
+
+    /**
+     * @brief Retorna l'avantpassat comú més profund de dos nodes
+     * @param u Ordinal d'un node de l'arbre
+     * @param v Ordinal d'un node de l'arbre
+     * @pre u i v pertanyen a la mateixa component calculada i són a l'arbre
+     * @post Retorna el node més profund que és avantpassat de u i de v (pot ser u o v), o CAP si no en tenen cap
+     * @return L'ordinal de l'avantpassat comú, o CAP
+     */
+    public int avantpassatComu(int u, int v) {
+        //Pre: u i v són a l'arbre d'una mateixa component calculada
+        //Post: Retorna l'avantpassat comú més profund de u i v, o CAP
+        if (esAvantpassat(u, v)) return u;
+        if (esAvantpassat(v, u)) return v;
+        for (int j = salts.length - 1; j >= 0; j--) {
+            int a = salts[j][u];
+            if (a != CAP && !esAvantpassat(a, v)) u = a;
+        }
+        return salts[0][u];
+    }
+
+    /**
+     * @brief Amplia els vectors si la topologia ha crescut
+     * @pre ---
+     * @post Els vectors tenen una posició per a cada ordinal
+     */
+    private void reservar() {
+        if (versions.length < topologia.nNodes()) {
+            int mida = Math.max(topologia.nNodes(), versions.length * 2);
+            versions = Arrays.copyOf(versions, mida);
+            profunditats = Arrays.copyOf(profunditats, mida);
+            entrades = Arrays.copyOf(entrades, mida);
+            sortides = Arrays.copyOf(sortides, mida);
+            oberts = Arrays.copyOf(oberts, mida);
+            ordre = new int[mida];
+            for (int j = 0; j < salts.length; j++) {
+                salts[j] = Arrays.copyOf(salts[j], mida);
+            }
+        }
+    }
+}
@@ -0,0 +1,493 @@
+import java.util.Arrays;
+
+/**
+ * @file IndexEspacial.java
+ * @brief Fitxer que conté la classe IndexEspacial
+ */
+
+/**
+ * @class IndexEspacial
+ * @brief Índex espacial de tots els nodes de la xarxa, per trobar els més propers a un punt o els que hi ha dins d'un radi
+ *
+ * Cada node es guarda com el seu vector unitari sobre l'esfera (el que Coordenades ja té precalculat), i l'espai es
+ * divideix en cel·les cúbiques d'un mateix costat. Una taula de dispersió oberta associa la clau de cada cel·la
+ * ocupada als nodes que hi ha a dins, amb les components dels seus vectors en vectors primitius contigus, de manera
+ * que afegir un node és O(1) i les cordes d'una cel·la es calculen totes d'un cop (Coordenades.cordes). La corda
+ * creix amb la distància sobre l'esfera: les consultes recorren les cel·les per capes al voltant del punt, descarten
+ * els nodes per la corda i només en deriven la distància real (Coordenades.distanciaCorda) per a cada node que pot ser
+ * al resultat. Si una capa té més cel·les que cel·les ocupades hi ha a l'índex, es recorren directament les ocupades.
+ *
+ * El costat de les cel·les s'adapta a la densitat: quan hi ha massa nodes per cel·la ocupada es parteix per la meitat
+ * i l'índex es reconstrueix. Els resultats queden ordenats per distància i, en cas d'empat, per identificador, com a
+ * GestorXarxes.nodesOrdenats, i valen fins a la consulta següent.
+ */
+public class IndexEspacial {
+    //Descripció general: Quadrícula de cel·les sobre els vectors unitaris dels nodes, amb consultes de veïns i de radi
+
+    private static final int MIDA_INICIAL = 16;
+    private static final double CELLA_INICIAL = 1.0 / 64;      //costat inicial de les cel·les, en radis terrestres (uns 100 km)
+    private static final double CELLA_MINIMA = Coordenades.cordaDistancia(0.01); //costat mínim de les cel·les (uns 10 m)
+    private static final int OCUPACIO_MAXIMA = 16;             //nodes per cel·la ocupada a partir dels quals es parteixen
+    private static final double TOLERANCIA = 1e-6;             //marge relatiu de les cordes, perquè cap empat quedi fora
+    private static final int BITS = 21;                        //bits de cada coordenada de cel·la a la clau
+    private static final long MASCARA = (1L << BITS) - 1;
+
+    private final RegistreNodes registre;
+
+    private int nNodes;
+    private double cella = CELLA_INICIAL;
+
+    private long[] taulaClaus = new long[MIDA_INICIAL]; //taula de dispersió: clau de cel·la
+    private int[] taulaCelles = new int[MIDA_INICIAL];  //taula de dispersió: índex de cel·la + 1 (0 = posició buida)
+    private int nCelles;
+    private int[][] coordCelles = new int[MIDA_INICIAL][]; //coordenades enteres de cada cel·la
+    private int[][] membres = new int[MIDA_INICIAL][];     //ordinals de cada cel·la
+    private double[][] xs = new double[MIDA_INICIAL][];    //vector unitari de cada membre de cada cel·la
+    private double[][] ys = new double[MIDA_INICIAL][];
+    private double[][] zs = new double[MIDA_INICIAL][];
+    private int[] nMembres = new int[MIDA_INICIAL];
+
+    private int nCandidats;
+    private int[] candidats = new int[MIDA_INICIAL];      //nodes trobats per l'última consulta
+    private double[] cordes = new double[MIDA_INICIAL];   //corda de cada candidat fins al punt consultat
+    private int nResultats;
+    private int[] resultats = new int[MIDA_INICIAL];
+    private float[] distancies = new float[MIDA_INICIAL]; //distància de cada resultat al punt consultat, en km
+    private long[] claus = new long[MIDA_INICIAL]; //bits de la distància i ordinal de cada resultat, mentre s'ordena
+
+    /**
+     * @brief Constructor de la classe IndexEspacial
+     * @param registre Registre de nodes de la xarxa
+     * @pre registre encara no té cap node
+     * @post S'ha creat un índex buit
+     */
+    public IndexEspacial(RegistreNodes registre) {
+        //Pre: registre encara no té cap node
+        //Post: S'ha creat un índex buit
+        this.registre = registre;
+    }
+
+    /**
+     * @brief Afegeix un node a l'índex
+     * @param u Ordinal del node
+     * @pre u és el següent ordinal del registre i el node ja hi és
+     * @post u és a la cel·la que li correspon segons les seves coordenades
+     */
+    public void afegirNode(int u) {
+        //Pre: u és el següent ordinal del registre i el node ja hi és
+        //Post: u és a la cel·la que li correspon
+        nNodes = u + 1;
+        inserir(u);
+        if (nNodes > OCUPACIO_MAXIMA * nCelles && cella / 2 >= CELLA_MINIMA) {
+            cella /= 2;
+            reconstruir();
+        }
+    }
+
+    /**
+     * @brief Afegeix de cop tots els nodes del registre a l'índex
+     * @param nNodes Nombre de nodes del registre
+     * @pre L'índex és buit i el registre té els nodes 0..nNodes-1
+     * @post Tots els nodes són a la cel·la que els correspon, amb el costat de cel·la ja adaptat a la densitat
+     */
+    public void carregar(int nNodes) {
+        //Pre: L'índex és buit i el registre té els nodes
+        //Post: Tots els nodes són a l'índex
+        this.nNodes = nNodes;
+        // Partir les cel·les mai no redueix les ocupades, així que el costat que hi arribaria afegint els nodes d'un en
+        // un (el més gran amb prou cel·les ocupades) es busca per bisecció comptant cel·les, i l'índex es construeix un cop
+        int maxim = 0;
+        while (CELLA_INICIAL / (1L << (maxim + 1)) >= CELLA_MINIMA) maxim++;
+        long[] claus = new long[nNodes];
+        int inferior = 0;
+        int superior = maxim;
+        while (inferior < superior) {
+            int mig = (inferior + superior) / 2;
+            if (nNodes <= (long) OCUPACIO_MAXIMA * comptarCelles(CELLA_INICIAL / (1L << mig), claus)) superior = mig;
+            else inferior = mig + 1;
+        }
+        cella = CELLA_INICIAL / (1L << inferior);
+        reconstruir();
+    }
+
+    /**
+     * @brief Compta quantes cel·les ocuparien els nodes amb un costat de cel·la donat
+     * @param costat Costat de les cel·les
+     * @param claus Vector auxiliar
+     * @pre claus té com a mínim nNodes posicions
+     * @post Retorna el nombre de cel·les diferents on cauen els nodes; l'índex no canvia
+     * @return El nombre de cel·les ocupades
+     */
+    private int comptarCelles(double costat, long[] claus) {
+        for (int u = 0; u < nNodes; u++) {
+            Coordenades c = registre.node(u).coordenades();
+            claus[u] = clau((int) Math.floor(c.X() / costat), (int) Math.floor(c.Y() / costat), (int) Math.floor(c.Z() / costat));
+        }
+        Arrays.sort(claus, 0, nNodes);
+        int n = 0;
+        for (int u = 0; u < nNodes; u++) {
+            if (u == 0 || claus[u] != claus[u - 1]) n++;
+        }
+        return n;
+    }
+
+    /**
+     * @brief Busca els nodes més propers a un punt
+     * @param c Coordenades del punt
+     * @param k Nombre de nodes a buscar
+     * @pre k >= 0
+     * @post resultat(i) i distancia(i) donen els min(k, nodes) nodes més propers a c, ordenats per distància i, en
+     * cas d'empat, per identificador
+     * @return El nombre de resultats
+     */
+    public int properes(Coordenades c, int k) {
+        //Pre: k >= 0
+        //Post: Els resultats són els k nodes més propers a c, ordenats
+        reservar();
+        nCandidats = 0;
+        nResultats = 0;
+        if (k == 0 || nNodes == 0) return 0;
+        int[] centre = cella(c);
+        boolean complet = false;
+        for (int r = 0; !complet; r++) {
+            long capa = r == 0 ? 1 : (long) (2 * r + 1) * (2 * r + 1) * (2 * r + 1) - (long) (2 * r - 1) * (2 * r - 1) * (2 * r - 1);
+            if (capa > nCelles) {
+                // Queden menys cel·les ocupades que cel·les a la capa: s'afegeixen totes les que falten de cop
+                for (int i = 0; i < nCelles; i++) {
+                    if (distanciaCelles(coordCelles[i], centre) >= r) afegirCandidats(i, c);
+                }
+                complet = true;
+            } else {
+                recorrerCapa(centre, r, c);
+                complet = nCandidats == nNodes;
+            }
+            // Tot node que no s'ha vist està a més de r cel·les, i per tant la seva corda és més gran que r * cella
+            if (!complet && comptarDins((r - TOLERANCIA) * cella / (1 + TOLERANCIA)) >= k) complet = true;
+        }
+
+        double[] ordenades = Arrays.copyOf(cordes, nCandidats);
+        Arrays.sort(ordenades);
+        double limit = ordenades[Math.min(k, nCandidats) - 1] * (1 + TOLERANCIA) + TOLERANCIA * cella;
+        ordenarResultats(c, limit, Double.MAX_VALUE);
+        nResultats = Math.min(nResultats, k);
+        return nResultats;
+    }
+
+    /**
+     * @brief Busca els nodes que hi ha dins d'un radi al voltant d'un punt
+     * @param c Coordenades del punt
+     * @param radi Radi en km
+     * @pre radi >= 0
+     * @post resultat(i) i distancia(i) donen els nodes a distància radi o menys de c, ordenats per distància i, en
+     * cas d'empat, per identificador
+     * @return El nombre de resultats
+     */
+    public int dinsRadi(Coordenades c, double radi) {
+        //Pre: radi >= 0
+        //Post: Els resultats són els nodes dins del radi, ordenats
+        reservar();
+        nCandidats = 0;
+        nResultats = 0;
+        if (nNodes == 0) return 0;
+        int[] centre = cella(c);
+        double corda = Coordenades.cordaDistancia(radi) * (1 + TOLERANCIA) + TOLERANCIA * cella;
+        long capes = (long) Math.ceil(corda / cella);
+        if ((2 * capes + 1) * (2 * capes + 1) * (2 * capes + 1) > nCelles) {
+            for (int i = 0; i < nCelles; i++) {
+                if (distanciaCelles(coordCelles[i], centre) <= capes) afegirCandidats(i, c);
+            }
+        } else {
+            for (int r = 0; r <= capes; r++) {
+                recorrerCapa(centre, r, c);
+            }
+        }
+        ordenarResultats(c, corda, radi);
+        return nResultats;
+    }
+
+    /**
+     * @brief Retorna un node del resultat de l'última consulta
+     * @param i Posició al resultat
+     * @pre 0 <= i < nombre de resultats de l'última consulta
+     * @post Retorna l'ordinal del node i-èsim més proper
+     * @return L'ordinal del node
+     */
+    public int resultat(int i) {
+        //Pre: 0 <= i < nombre de resultats
+        //Post: Retorna l'ordinal del node i-èsim
+        return resultats[i];
+    }
+
+    /**
+     * @brief Retorna la distància d'un node del resultat de l'última consulta
+     * @param i Posició al resultat
+     * @pre 0 <= i < nombre de resultats de l'última consulta
+     * @post Retorna la distància en km del node i-èsim al punt consultat, calculada un sol cop
+     * @return La distància en km
+     */
+    public float distancia(int i) {
+        //Pre: 0 <= i < nombre de resultats
+        //Post: Retorna la distància del node i-èsim al punt consultat
+        return distancies[i];
+    }
+
+    /**
+     * @brief Calcula la distància real dels candidats prou propers i els ordena
+     * @param c Coordenades del punt consultat
+     * @param limitCorda Corda màxima dels candidats que es consideren
+     * @param radi Distància màxima dels resultats, en km
+     * @pre Els candidats són tots els nodes amb corda fins a limitCorda
+     * @post Els resultats són els candidats a distància radi o menys, ordenats per distància i identificador
+     */
+    private void ordenarResultats(Coordenades c, double limitCorda, double radi) {
+        for (int i = 0; i < nCandidats; i++) {
+            int u = candidats[i];
+            if (cordes[i] > limitCorda) continue;
+            // La mateixa conversió que Coordenades.distancies, perquè l'ordre coincideixi amb GestorXarxes.nodesOrdenats
+            double d = Coordenades.distanciaCorda(cordes[i]);
+            if (d > radi) continue;
+            // Els bits d'un float no negatiu s'ordenen com el float, així que la clau s'ordena per distància
+            claus[nResultats++] = (long) Float.floatToIntBits((float) d) << 32 | u;
+        }
+        Arrays.sort(claus, 0, nResultats);
+        for (int i = 0; i < nResultats; i++) {
+            resultats[i] = (int) claus[i];
+            distancies[i] = Float.intBitsToFloat((int) (claus[i] >>> 32));
+        }
+        int inici = 0;
+        for (int i = 1; i <= nResultats; i++) {
+            if (i == nResultats || distancies[i] != distancies[inici]) {
+                if (i - inici > 1) ordenarEmpat(inici, i);
+                inici = i;
+            }
+        }
+    }
+
+    /**
+     * @brief Ordena per identificador un tram de resultats empatats en distància
+     * @param inici Primera posició del tram
+     * @param fi Posició següent a l'última del tram
+     * @pre Tots els resultats de [inici, fi) tenen la mateixa distància
+     * @post Els resultats de [inici, fi) estan ordenats per identificador
+     */
+    private void ordenarEmpat(int inici, int fi) {
+        for (int i = inici + 1; i < fi; i++) {
+            int u = resultats[i];
+            String id = registre.id(u);
+            int j = i;
+            while (j > inici && registre.id(resultats[j - 1]).compareTo(id) > 0) {
+                resultats[j] = resultats[j - 1];
+                j--;
+            }
+            resultats[j] = u;
+        }
+    }
+
+    /**
+     * @brief Afegeix als candidats els nodes de totes les cel·les d'una capa
+     * @param centre Coordenades enteres de la cel·la del punt consultat
+     * @param r Capa, en nombre de cel·les de distància
+     * @param c Coordenades del punt consultat
+     * @pre ---
+     * @post Els nodes de les cel·les ocupades a distància (màxim de les tres coordenades) r de centre són candidats
+     */
+    private void recorrerCapa(int[] centre, int r, Coordenades c) {
+        for (int dx = -r; dx <= r; dx++) {
+            for (int dy = -r; dy <= r; dy++) {
+                boolean vora = dx == -r || dx == r || dy == -r || dy == r;
+                for (int dz = -r; dz <= r; dz += vora || r == 0 ? 1 : 2 * r) {
+                    int i = buscar(clau(centre[0] + dx, centre[1] + dy, centre[2] + dz));
+                    if (i >= 0) afegirCandidats(i, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Afegeix als candidats els nodes d'una cel·la
+     * @param i Índex de la cel·la
+     * @param c Coordenades del punt consultat
+     * @pre ---
+     * @post Els nodes de la cel·la són candidats, amb la seva corda fins a c
+     */
+    private void afegirCandidats(int i, Coordenades c) {
+        int n = nMembres[i];
+        System.arraycopy(membres[i], 0, candidats, nCandidats, n);
+        Coordenades.cordes(c, xs[i], ys[i], zs[i], n, cordes, nCandidats);
+        nCandidats += n;
+    }
+
+    /**
+     * @brief Compta els candidats que hi ha fins a una corda
+     * @param corda Corda màxima
+     * @pre ---
+     * @post Retorna quants candidats tenen corda fins a corda
+     * @return El nombre de candidats
+     */
+    private int comptarDins(double corda) {
+        int n = 0;
+        for (int i = 0; i < nCandidats; i++) {
+            if (cordes[i] <= corda) n++;
+        }
+        return n;
+    }
+
+    /**
+     * @brief Posa un node a la seva cel·la, creant-la si no existeix
+     * @param u Ordinal del node
+     * @pre u és un ordinal del registre
+     * @post u és l'últim membre de la seva cel·la
+     */
+    private void inserir(int u) {
+        Coordenades c = registre.node(u).coordenades();
+        int[] coord = cella(c);
+        long clau = clau(coord[0], coord[1], coord[2]);
+        int i = buscar(clau);
+        if (i < 0) {
+            if (2 * (nCelles + 1) > taulaClaus.length) redimensionarTaula();
+            if (nCelles == membres.length) {
+                int mida = nCelles * 2;
+                coordCelles = Arrays.copyOf(coordCelles, mida);
+                membres = Arrays.copyOf(membres, mida);
+                xs = Arrays.copyOf(xs, mida);
+                ys = Arrays.copyOf(ys, mida);
+                zs = Arrays.copyOf(zs, mida);
+                nMembres = Arrays.copyOf(nMembres, mida);
+            }
+            i = nCelles++;
+            coordCelles[i] = coord;
+            membres[i] = new int[2];
+            xs[i] = new double[2];
+            ys[i] = new double[2];
+            zs[i] = new double[2];
+            nMembres[i] = 0;
+            int p = posicio(clau);
+            while (taulaCelles[p] != 0) p = (p + 1) & (taulaClaus.length - 1);
+            taulaClaus[p] = clau;
+            taulaCelles[p] = i + 1;
+        }
+        int n = nMembres[i];
+        if (n == membres[i].length) {
+            membres[i] = Arrays.copyOf(membres[i], n * 2);
+            xs[i] = Arrays.copyOf(xs[i], n * 2);
+            ys[i] = Arrays.copyOf(ys[i], n * 2);
+            zs[i] = Arrays.copyOf(zs[i], n * 2);
+        }
+        membres[i][n] = u;
+        xs[i][n] = c.X();
+        ys[i][n] = c.Y();
+        zs[i][n] = c.Z();
+        nMembres[i] = n + 1;
+    }
+
+    /**
+     * @brief Torna a repartir tots els nodes en cel·les del costat actual
+     * @pre ---
+     * @post Cada node és a la cel·la que li correspon segons el costat actual
+     */
+    private void reconstruir() {
+        Arrays.fill(taulaCelles, 0);
+        nCelles = 0;
+        for (int u = 0; u < nNodes; u++) {
+            inserir(u);
+        }
+    }
+
+    /**
+     * @brief Dobla la mida de la taula de dispersió
+     * @pre ---
+     * @post Totes les cel·les hi són, a la posició que els correspon segons la nova mida
+     */
+    private void redimensionarTaula() {
+        long[] clausAnteriors = taulaClaus;
+        int[] cellesAnteriors = taulaCelles;
+        taulaClaus = new long[clausAnteriors.length * 2];
+        taulaCelles = new int[cellesAnteriors.length * 2];
+        for (int p = 0; p < clausAnteriors.length; p++) {
+            if (cellesAnteriors[p] == 0) continue;
+            int q = posicio(clausAnteriors[p]);
+            while (taulaCelles[q] != 0) q = (q + 1) & (taulaClaus.length - 1);
+            taulaClaus[q] = clausAnteriors[p];
+            taulaCelles[q] = cellesAnteriors[p];
+        }
+    }
+
+    /**
+     * @brief Busca una cel·la per la seva clau
+     * @param clau Clau de la cel·la
+     * @pre ---
+     * @post Retorna l'índex de la cel·la, o -1 si no està ocupada
+     * @return L'índex de la cel·la, o -1
+     */
+    private int buscar(long clau) {
+        int p = posicio(clau);
+        while (taulaCelles[p] != 0) {
+            if (taulaClaus[p] == clau) return taulaCelles[p] - 1;
+            p = (p + 1) & (taulaClaus.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * @brief Retorna la posició inicial d'una clau a la taula de dispersió
+     * @param clau Clau de la cel·la
+     * @pre ---
+     * @post Retorna una posició vàlida de la taula
+     * @return La posició
+     */
+    private int posicio(long clau) {
+        return (int) ((clau * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(taulaClaus.length)));
+    }
+
+    /**
+     * @brief Retorna les coordenades enteres de la cel·la d'un punt
+     * @param c Coordenades del punt
+     * @pre ---
+     * @post Retorna l'índex de la cel·la del vector unitari de c en cada eix
+     * @return Les tres coordenades de la cel·la
+     */
+    private int[] cella(Coordenades c) {
+        return new int[]{(int) Math.floor(c.X() / cella), (int) Math.floor(c.Y() / cella), (int) Math.floor(c.Z() / cella)};
+    }
+
+    /**
+     * @brief Empaqueta les coordenades d'una cel·la en una clau
+     * @param cx Coordenada de la cel·la en el primer eix
+     * @param cy Coordenada de la cel·la en el segon eix
+     * @param cz Coordenada de la cel·la en el tercer eix
+     * @pre Les coordenades caben en BITS bits amb signe
+     * @post Retorna una clau diferent per a cada cel·la
+     * @return La clau
+     */
+    private static long clau(int cx, int cy, int cz) {
+        return ((cx & MASCARA) << (2 * BITS)) | ((cy & MASCARA) << BITS) | (cz & MASCARA);
+    }
+
+    /**
+     * @brief Retorna la distància entre dues cel·les en nombre de capes
+     * @param a Coordenades d'una cel·la
+     * @param b Coordenades de l'altra cel·la
+     * @pre ---
+     * @post Retorna el màxim de les diferències en cada eix
+     * @return La distància en capes
+     */
+    private static int distanciaCelles(int[] a, int[] b) {
+        return Math.max(Math.abs(a[0] - b[0]), Math.max(Math.abs(a[1] - b[1]), Math.abs(a[2] - b[2])));
+    }
+
+    /**
+     * @brief Amplia els vectors de consulta si l'índex ha crescut
+     * @pre ---
+     * @post Els vectors de consulta tenen una posició per a cada ordinal
+     */
+    private void reservar() {
+        if (candidats.length < nNodes) {
+            int mida = Math.max(nNodes, candidats.length * 2);
+            candidats = new int[mida];
+            cordes = new double[mida];
+            resultats = new int[mida];
+            distancies = new float[mida];
+            claus = new long[mida];
+        }
+    }
+}
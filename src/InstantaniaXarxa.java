@@ -0,0 +1,423 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * @file InstantaniaXarxa.java
+ * @brief Fitxer que conté la classe InstantaniaXarxa
+ */
+
+/**
+ * @class InstantaniaXarxa
+ * @brief Format binari amb versió per guardar una xarxa sencera i tornar-la a carregar
+ *
+ * El fitxer comença amb una capçalera (marca, versió i mides) i després té quatre seccions, cadascuna precedida
+ * d'una etiqueta: nodes, canonades, abonats de cada terminal i terminal de cada client. Cada secció es guarda per
+ * columnes, en l'ordre dels ordinals: tots els identificadors, tots els tipus, totes les latituds, etc. Els textos es
+ * guarden com un vector de posicions finals seguit dels bytes UTF-8 de tots els textos, i els nodes de les canonades
+ * i dels abonats es guarden pel seu ordinal.
+ *
+ * La càrrega mapeja el fitxer a memòria i llegeix cada columna d'un sol cop a un vector. Amb els vectors d'origens,
+ * destins i capacitats es construeixen de cop la topologia, el registre, les components, l'ordre topològic i l'índex
+ * espacial (Xarxa.carregarTopologia), sense passar per les actualitzacions incrementals d'afegir nodes i connectar-los
+ * d'un en un. Els ordinals i els índexs de canonada són els de la xarxa guardada. El que encara es fa per a cada
+ * element és crear els objectes Node i Canonada i omplir els mapes d'identificadors de nodes i de canonades, que la
+ * resta de la xarxa fa servir per buscar-los. Els enters i els reals són big-endian, com els de DataOutputStream.
+ *
+ * L'historial d'obrir i tancar aixetes no es guarda: una xarxa carregada no pot recular a abans de la càrrega.
+ */
+public class InstantaniaXarxa {
+    //Descripció general: Escriptura i lectura d'instantànies binàries d'una xarxa
+
+    public static final int MARCA = 0x42575853; ///< "BWXS", primers quatre bytes de tota instantània
+    public static final int VERSIO = 1; ///< Versió del format que s'escriu i l'única que es llegeix
+
+    private static final int SECCIO_NODES = 1;
+    private static final int SECCIO_CANONADES = 2;
+    private static final int SECCIO_ABONATS = 3;
+    private static final int SECCIO_ABONAMENTS = 4;
+    private static final int MIDA_BUFFER = 1 << 16;
+
+    private InstantaniaXarxa() {
+    }
+
+    /**
+     * @brief Guarda una xarxa en un fitxer
+     * @param xarxa Xarxa a guardar
+     * @param nomFitxer Camí del fitxer de la instantània
+     * @throws IOException Si el fitxer no es pot escriure
+     * @pre ---
+     * @post El fitxer conté els nodes (tipus, coordenades, aixeta, demanda o cabal), les canonades (amb la seva
+     * capacitat) i els abonats de la xarxa
+     */
+    public static void guardar(Xarxa xarxa, String nomFitxer) throws IOException {
+        //Pre: ---
+        //Post: El fitxer conté la instantània de la xarxa
+        RegistreNodes registre = xarxa.registre();
+        Topologia topologia = xarxa.topologia();
+        int nNodes = registre.nNodes();
+        int nCanonades = topologia.nCanonades();
+        Map<String, Terminal> abonaments = xarxa.abonaments();
+
+        int nAbonats = 0;
+        for (int u = 0; u < nNodes; u++) {
+            if (registre.tipus(u) == RegistreNodes.TERMINAL) {
+                nAbonats += ((Terminal) registre.node(u)).abonats().size();
+            }
+        }
+        int[] terminalsAbonats = new int[nAbonats];
+        String[] clientsAbonats = new String[nAbonats];
+        int k = 0;
+        for (int u = 0; u < nNodes; u++) {
+            if (registre.tipus(u) == RegistreNodes.TERMINAL) {
+                for (String client : ((Terminal) registre.node(u)).abonats()) {
+                    terminalsAbonats[k] = u;
+                    clientsAbonats[k++] = client;
+                }
+            }
+        }
+        int[] terminalsAbonaments = new int[abonaments.size()];
+        String[] clientsAbonaments = new String[abonaments.size()];
+        k = 0;
+        for (Map.Entry<String, Terminal> abonament : abonaments.entrySet()) {
+            clientsAbonaments[k] = abonament.getKey();
+            terminalsAbonaments[k++] = xarxa.ordinal(abonament.getValue());
+        }
+
+        try (DataOutputStream sortida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(nomFitxer), MIDA_BUFFER))) {
+            sortida.writeInt(MARCA);
+            sortida.writeInt(VERSIO);
+            sortida.writeInt(nNodes);
+            sortida.writeInt(nCanonades);
+            sortida.writeInt(nAbonats);
+            sortida.writeInt(abonaments.size());
+
+            sortida.writeInt(SECCIO_NODES);
+            String[] ids = new String[nNodes];
+            for (int u = 0; u < nNodes; u++) {
+                ids[u] = registre.id(u);
+            }
+            escriureTextos(sortida, ids);
+            for (int u = 0; u < nNodes; u++) {
+                sortida.writeByte(registre.tipus(u));
+            }
+            for (int u = 0; u < nNodes; u++) {
+                Coordenades c = registre.node(u).coordenades();
+                sortida.writeFloat(c == null ? Float.NaN : c.Latitud());
+            }
+            for (int u = 0; u < nNodes; u++) {
+                Coordenades c = registre.node(u).coordenades();
+                sortida.writeFloat(c == null ? Float.NaN : c.Longitud());
+            }
+            for (int u = 0; u < nNodes; u++) {
+                sortida.writeBoolean(registre.node(u).aixetaOberta());
+            }
+            for (int u = 0; u < nNodes; u++) {
+                Node node = registre.node(u);
+                float valor = 0;
+                if (node instanceof Terminal) valor = ((Terminal) node).demanda();
+                else if (node instanceof Origen) valor = ((Origen) node).cabal();
+                sortida.writeFloat(valor);
+            }
+            for (int u = 0; u < nNodes; u++) {
+                Node node = registre.node(u);
+                sortida.writeFloat(node instanceof Terminal ? ((Terminal) node).demandaActual() : 0);
+            }
+
+            sortida.writeInt(SECCIO_CANONADES);
+            for (int c = 0; c < nCanonades; c++) {
+                sortida.writeInt(topologia.origen(c));
+            }
+            for (int c = 0; c < nCanonades; c++) {
+                sortida.writeInt(topologia.desti(c));
+            }
+            for (int c = 0; c < nCanonades; c++) {
+                sortida.writeFloat(topologia.capacitat(c));
+            }
+
+            sortida.writeInt(SECCIO_ABONATS);
+            for (int terminal : terminalsAbonats) {
+                sortida.writeInt(terminal);
+            }
+            escriureTextos(sortida, clientsAbonats);
+
+            sortida.writeInt(SECCIO_ABONAMENTS);
+            for (int terminal : terminalsAbonaments) {
+                sortida.writeInt(terminal);
+            }
+            escriureTextos(sortida, clientsAbonaments);
+        }
+    }
+
+    /**
+     * @brief Carrega una xarxa d'un fitxer
+     * @param nomFitxer Camí del fitxer de la instantània
+     * @throws IOException Si el fitxer no es pot llegir, no és una instantània, és d'una altra versió o està malmès
+     * @pre ---
+     * @post Retorna una xarxa nova amb els mateixos nodes, ordinals, canonades, aixetes, demandes, cabals i abonats
+     * que la xarxa guardada, i sense historial d'aixetes
+     * @return La xarxa carregada
+     */
+    public static Xarxa carregar(String nomFitxer) throws IOException {
+        //Pre: ---
+        //Post: Retorna la xarxa guardada al fitxer
+        ByteBuffer buffer;
+        try (RandomAccessFile fitxer = new RandomAccessFile(nomFitxer, "r");
+             FileChannel canal = fitxer.getChannel()) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("La instantània és massa gran: " + canal.size() + " bytes");
+            }
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        try {
+            return carregar(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("La instantània està truncada o malmesa", e);
+        }
+    }
+
+    /**
+     * @brief Construeix la xarxa d'una instantània
+     * @param buffer Contingut de la instantània, a la posició 0
+     * @throws IOException Si la marca, la versió, alguna etiqueta de secció o algun ordinal no són vàlids
+     * @throws BufferUnderflowException Si el contingut s'acaba abans d'hora
+     * @pre ---
+     * @post Retorna la xarxa guardada a la instantània
+     * @return La xarxa carregada
+     */
+    private static Xarxa carregar(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MARCA) {
+            throw new IOException("El fitxer no és una instantània de xarxa");
+        }
+        int versio = buffer.getInt();
+        if (versio != VERSIO) {
+            throw new IOException("Versió " + versio + " de la instantània no suportada");
+        }
+        int nNodes = mida(buffer);
+        int nCanonades = mida(buffer);
+        int nAbonats = mida(buffer);
+        int nAbonaments = mida(buffer);
+
+        seccio(buffer, SECCIO_NODES);
+        String[] ids = llegirTextos(buffer, nNodes);
+        byte[] tipus = llegirBytes(buffer, nNodes);
+        float[] latituds = llegirReals(buffer, nNodes);
+        float[] longituds = llegirReals(buffer, nNodes);
+        byte[] aixetes = llegirBytes(buffer, nNodes);
+        float[] valors = llegirReals(buffer, nNodes);
+        float[] demandesActuals = llegirReals(buffer, nNodes);
+
+        seccio(buffer, SECCIO_CANONADES);
+        int[] origens = llegirEnters(buffer, nCanonades);
+        int[] destins = llegirEnters(buffer, nCanonades);
+        float[] capacitats = llegirReals(buffer, nCanonades);
+
+        seccio(buffer, SECCIO_ABONATS);
+        int[] terminalsAbonats = llegirEnters(buffer, nAbonats);
+        String[] clientsAbonats = llegirTextos(buffer, nAbonats);
+
+        seccio(buffer, SECCIO_ABONAMENTS);
+        int[] terminalsAbonaments = llegirEnters(buffer, nAbonaments);
+        String[] clientsAbonaments = llegirTextos(buffer, nAbonaments);
+
+        Xarxa xarxa = new Xarxa();
+        Node[] nodes = new Node[nNodes];
+        for (int u = 0; u < nNodes; u++) {
+            Coordenades c = Float.isNaN(latituds[u]) ? null : new Coordenades(latituds[u], longituds[u]);
+            Node node;
+            switch (tipus[u]) {
+                case RegistreNodes.TERMINAL:
+                    Terminal terminal = new Terminal(ids[u], c, valors[u]);
+                    terminal.establirDemandaActual(demandesActuals[u]);
+                    node = terminal;
+                    break;
+                case RegistreNodes.CONNEXIO:
+                    node = new Connexio(ids[u], c);
+                    break;
+                case RegistreNodes.ORIGEN:
+                    Origen origen = new Origen(ids[u], c);
+                    origen.establirCabal(valors[u]);
+                    node = origen;
+                    break;
+                default:
+                    throw new IOException("Tipus de node desconegut: " + tipus[u]);
+            }
+            if (aixetes[u] == 0) node.tancarAixeta();
+            nodes[u] = node;
+        }
+        //La topologia es construeix directament dels vectors: els ordinals s'han de comprovar abans
+        for (int c = 0; c < nCanonades; c++) {
+            node(nodes, origens[c]);
+            node(nodes, destins[c]);
+        }
+        xarxa.carregarTopologia(nodes, tipus, origens, destins, capacitats);
+        for (int i = 0; i < nAbonats; i++) {
+            terminal(nodes, terminalsAbonats[i]).afegirAbonat(clientsAbonats[i]);
+        }
+        for (int i = 0; i < nAbonaments; i++) {
+            xarxa.carregarAbonament(clientsAbonaments[i], terminal(nodes, terminalsAbonaments[i]));
+        }
+        return xarxa;
+    }
+
+    /**
+     * @brief Escriu una columna de textos
+     * @param sortida Sortida de la instantània
+     * @param textos Textos a escriure
+     * @throws IOException Si no es pot escriure
+     * @pre Cap text és null
+     * @post S'han escrit la posició final de cada text i després els bytes UTF-8 de tots els textos
+     */
+    private static void escriureTextos(DataOutputStream sortida, String[] textos) throws IOException {
+        byte[][] bytes = new byte[textos.length][];
+        int fi = 0;
+        for (int i = 0; i < textos.length; i++) {
+            bytes[i] = textos[i].getBytes(StandardCharsets.UTF_8);
+            fi += bytes[i].length;
+            sortida.writeInt(fi);
+        }
+        for (byte[] text : bytes) {
+            sortida.write(text);
+        }
+    }
+
+    /**
+     * @brief Llegeix una columna de textos
+     * @param buffer Contingut de la instantània, a l'inici de la columna
+     * @param n Nombre de textos
+     * @throws IOException Si les posicions finals no són creixents
+     * @pre ---
+     * @post Retorna els textos i el buffer queda després de la columna
+     * @return Els textos llegits
+     */
+    private static String[] llegirTextos(ByteBuffer buffer, int n) throws IOException {
+        int[] fins = llegirEnters(buffer, n);
+        byte[] bytes = llegirBytes(buffer, n == 0 ? 0 : fins[n - 1]);
+        String[] textos = new String[n];
+        int inici = 0;
+        for (int i = 0; i < n; i++) {
+            if (fins[i] < inici) {
+                throw new IOException("Columna de textos malmesa");
+            }
+            textos[i] = new String(bytes, inici, fins[i] - inici, StandardCharsets.UTF_8);
+            inici = fins[i];
+        }
+        return textos;
+    }
+
+    /**
+     * @brief Llegeix una columna d'enters
+     * @param buffer Contingut de la instantània, a l'inici de la columna
+     * @param n Nombre d'enters
+     * @pre ---
+     * @post Retorna els enters i el buffer queda després de la columna
+     * @return Els enters llegits
+     */
+    private static int[] llegirEnters(ByteBuffer buffer, int n) {
+        int[] enters = new int[n];
+        buffer.asIntBuffer().get(enters);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+        return enters;
+    }
+
+    /**
+     * @brief Llegeix una columna de reals
+     * @param buffer Contingut de la instantània, a l'inici de la columna
+     * @param n Nombre de reals
+     * @pre ---
+     * @post Retorna els reals i el buffer queda després de la columna
+     * @return Els reals llegits
+     */
+    private static float[] llegirReals(ByteBuffer buffer, int n) {
+        float[] reals = new float[n];
+        buffer.asFloatBuffer().get(reals);
+        buffer.position(buffer.position() + n * Float.BYTES);
+        return reals;
+    }
+
+    /**
+     * @brief Llegeix una columna de bytes
+     * @param buffer Contingut de la instantània, a l'inici de la columna
+     * @param n Nombre de bytes
+     * @pre ---
+     * @post Retorna els bytes i el buffer queda després de la columna
+     * @return Els bytes llegits
+     */
+    private static byte[] llegirBytes(ByteBuffer buffer, int n) {
+        byte[] bytes = new byte[n];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @brief Llegeix una mida de la capçalera
+     * @param buffer Contingut de la instantània, a la posició de la mida
+     * @throws IOException Si la mida és negativa
+     * @pre ---
+     * @post Retorna la mida i el buffer queda després
+     * @return La mida llegida
+     */
+    private static int mida(ByteBuffer buffer) throws IOException {
+        int mida = buffer.getInt();
+        if (mida < 0) {
+            throw new IOException("Mida negativa a la capçalera de la instantània");
+        }
+        return mida;
+    }
+
+    /**
+     * @brief Comprova l'etiqueta d'una secció
+     * @param buffer Contingut de la instantània, a l'etiqueta de la secció
+     * @param etiqueta Etiqueta esperada
+     * @throws IOException Si l'etiqueta no és l'esperada
+     * @pre ---
+     * @post El buffer queda a l'inici de la secció
+     */
+    private static void seccio(ByteBuffer buffer, int etiqueta) throws IOException {
+        int llegida = buffer.getInt();
+        if (llegida != etiqueta) {
+            throw new IOException("S'esperava la secció " + etiqueta + " i s'ha trobat " + llegida);
+        }
+    }
+
+    /**
+     * @brief Retorna el node d'un ordinal llegit
+     * @param nodes Nodes carregats
+     * @param ordinal Ordinal llegit de la instantània
+     * @throws IOException Si l'ordinal no és de cap node
+     * @pre ---
+     * @post Retorna el node de l'ordinal
+     * @return El node
+     */
+    private static Node node(Node[] nodes, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= nodes.length) {
+            throw new IOException("Ordinal de node fora de rang: " + ordinal);
+        }
+        return nodes[ordinal];
+    }
+
+    /**
+     * @brief Retorna el terminal d'un ordinal llegit
+     * @param nodes Nodes carregats
+     * @param ordinal Ordinal llegit de la instantània
+     * @throws IOException Si l'ordinal no és de cap terminal
+     * @pre ---
+     * @post Retorna el terminal de l'ordinal
+     * @return El terminal
+     */
+    private static Terminal terminal(Node[] nodes, int ordinal) throws IOException {
+        Node node = node(nodes, ordinal);
+        if (!(node instanceof Terminal)) {
+            throw new IOException("L'ordinal " + ordinal + " no és d'un terminal");
+        }
+        return (Terminal) node;
+    }
+}
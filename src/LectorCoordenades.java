@@ -0,0 +1,344 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file LectorCoordenades.java
+ * @brief Fitxer que conté la classe LectorCoordenades
+ */
+
+/**
+ * @class LectorCoordenades
+ * @brief Intèrpret de coordenades en graus, minuts i segons ("graus:minuts:segonsDir,graus:minuts:segonsDir")
+ *
+ * El text es recorre una sola vegada, caràcter a caràcter, des d'un interval d'un text o d'uns bytes, i la latitud i
+ * la longitud en graus decimals queden en camps primitius: llegir unes coordenades no crea cap objecte ni llança cap
+ * excepció. Els graus i minuts són enters sense signe i els segons un decimal sense signe, seguit de la direcció (N o
+ * S per a la latitud, E o W per a la longitud); no s'hi admeten espais. Si el text no té aquesta forma o els valors
+ * no són vàlids, es guarda la posició del primer caràcter incorrecte i el motiu.
+ *
+ * Els segons es calculen amb una sola divisió en float quan la mantissa i la potència de deu són exactes en float,
+ * que dona el mateix resultat que Float.parseFloat; només quan tenen massa xifres es recorre a Float.parseFloat.
+ */
+public class LectorCoordenades {
+    //Descripció general: Lectura en una passada de coordenades en graus, minuts i segons
+
+    private static final int MAX_MANTISSA = 1 << 24; //enters fins aquí són exactes en float
+    private static final float[] POTENCIES = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f}; //exactes en float
+    private static final int MAX_ENTER = 1_000_000; //a partir d'aquí un enter ja és fora de rang i no se n'acumula el valor
+
+    public static final String XIFRA = "s'esperava una xifra";           ///< Motiu d'error
+    public static final String DOS_PUNTS = "s'esperava ':'";             ///< Motiu d'error
+    public static final String COMA = "s'esperava ','";                  ///< Motiu d'error
+    public static final String NORD_SUD = "s'esperava N o S";            ///< Motiu d'error
+    public static final String EST_OEST = "s'esperava E o W";            ///< Motiu d'error
+    public static final String FINAL = "caràcters després de la longitud"; ///< Motiu d'error
+    public static final String RANG = "valor fora de rang";              ///< Motiu d'error
+
+    private CharSequence text; //origen dels caràcters, si es llegeix d'un text
+    private ByteBuffer bytes;  //origen dels caràcters, si es llegeix de bytes
+    private int inici;
+    private int fi;
+    private int cursor;
+
+    private float latitud;
+    private float longitud;
+    private int posicioError;
+    private String error;
+
+    /**
+     * @brief Llegeix unes coordenades d'un text
+     * @param text Text amb les coordenades
+     * @pre text != null
+     * @post Igual que llegir(text, 0, text.length())
+     * @return True si el text són unes coordenades vàlides, false en cas contrari
+     */
+    public boolean llegir(CharSequence text) {
+        //Pre: text != null
+        //Post: Igual que llegir(text, 0, text.length())
+        return llegir(text, 0, text.length());
+    }
+
+    /**
+     * @brief Llegeix unes coordenades d'un interval d'un text
+     * @param text Text amb les coordenades
+     * @param inici Primera posició de l'interval
+     * @param fi Posició següent a l'última de l'interval
+     * @pre 0 <= inici <= fi <= text.length()
+     * @post Si l'interval són unes coordenades vàlides, latitud() i longitud() en donen el valor; si no, posicioError()
+     * i error() diuen on i per què no ho són
+     * @return True si l'interval són unes coordenades vàlides, false en cas contrari
+     */
+    public boolean llegir(CharSequence text, int inici, int fi) {
+        //Pre: 0 <= inici <= fi <= text.length()
+        //Post: Es guarden les coordenades de l'interval, o la posició i el motiu de l'error
+        this.text = text;
+        this.bytes = null;
+        return llegir(inici, fi);
+    }
+
+    /**
+     * @brief Llegeix unes coordenades d'un interval de bytes
+     * @param bytes Bytes amb les coordenades, en ASCII o UTF-8
+     * @param inici Primera posició de l'interval
+     * @param fi Posició següent a l'última de l'interval
+     * @pre 0 <= inici <= fi <= bytes.limit()
+     * @post Si l'interval són unes coordenades vàlides, latitud() i longitud() en donen el valor; si no, posicioError()
+     * i error() diuen on i per què no ho són (la posició és en bytes)
+     * @return True si l'interval són unes coordenades vàlides, false en cas contrari
+     */
+    public boolean llegir(ByteBuffer bytes, int inici, int fi) {
+        //Pre: 0 <= inici <= fi <= bytes.limit()
+        //Post: Es guarden les coordenades de l'interval, o la posició i el motiu de l'error
+        this.text = null;
+        this.bytes = bytes;
+        return llegir(inici, fi);
+    }
+
+    /**
+     * @brief Retorna la latitud llegida
+     * @pre L'última lectura ha estat correcta
+     * @post Retorna la latitud en graus decimals (negativa al sud)
+     * @return La latitud
+     */
+    public float latitud() {
+        //Pre: L'última lectura ha estat correcta
+        //Post: Retorna la latitud
+        return latitud;
+    }
+
+    /**
+     * @brief Retorna la longitud llegida
+     * @pre L'última lectura ha estat correcta
+     * @post Retorna la longitud en graus decimals (negativa a l'oest)
+     * @return La longitud
+     */
+    public float longitud() {
+        //Pre: L'última lectura ha estat correcta
+        //Post: Retorna la longitud
+        return longitud;
+    }
+
+    /**
+     * @brief Crea les coordenades llegides
+     * @pre L'última lectura ha estat correcta
+     * @post Retorna unes coordenades amb la latitud i la longitud llegides
+     * @return Les coordenades
+     */
+    public Coordenades coordenades() {
+        //Pre: L'última lectura ha estat correcta
+        //Post: Retorna les coordenades llegides
+        return new Coordenades(latitud, longitud);
+    }
+
+    /**
+     * @brief Retorna on és l'error de l'última lectura
+     * @pre L'última lectura ha fallat
+     * @post Retorna la posició del primer caràcter incorrecte, comptada des de l'inici de l'interval
+     * @return La posició de l'error
+     */
+    public int posicioError() {
+        //Pre: L'última lectura ha fallat
+        //Post: Retorna la posició de l'error dins l'interval
+        return posicioError;
+    }
+
+    /**
+     * @brief Retorna el motiu de l'error de l'última lectura
+     * @pre L'última lectura ha fallat
+     * @post Retorna una de les constants de motiu d'error de la classe
+     * @return El motiu de l'error
+     */
+    public String error() {
+        //Pre: L'última lectura ha fallat
+        //Post: Retorna el motiu de l'error
+        return error;
+    }
+
+    /**
+     * @brief Retorna el valor exacte d'un decimal donat per la mantissa i el nombre de decimals
+     * @param mantissa Xifres del decimal, sense el punt
+     * @param decimals Nombre de xifres després del punt
+     * @pre mantissa >= 0, decimals >= 0
+     * @post Si mantissa i 10^decimals són exactes en float, retorna mantissa / 10^decimals arrodonit com ho fa
+     * Float.parseFloat; si no, retorna NaN
+     * @return El decimal, o NaN si no es pot calcular amb una sola divisió
+     */
+    public static float decimalExacte(long mantissa, int decimals) {
+        //Pre: mantissa >= 0, decimals >= 0
+        //Post: Retorna el decimal arrodonit correctament, o NaN
+        if (mantissa > MAX_MANTISSA || decimals >= POTENCIES.length) return Float.NaN;
+        // Dos operands exactes i una sola operació IEEE: el resultat és el float més proper, com el de parseFloat
+        return (float) mantissa / POTENCIES[decimals];
+    }
+
+    /**
+     * @brief Llegeix unes coordenades de l'interval de l'origen actual
+     * @param inici Primera posició de l'interval
+     * @param fi Posició següent a l'última de l'interval
+     * @pre L'origen actual és text o bytes
+     * @post Es guarden les coordenades de l'interval, o la posició i el motiu de l'error
+     * @return True si l'interval són unes coordenades vàlides, false en cas contrari
+     */
+    private boolean llegir(int inici, int fi) {
+        this.inici = inici;
+        this.fi = fi;
+        this.cursor = inici;
+        this.error = null;
+
+        int posicio = cursor;
+        int grausLat = enter();
+        if (grausLat < 0 || !separador(':', DOS_PUNTS)) return false;
+        if (grausLat > 90) return fallar(posicio, RANG);
+        posicio = cursor;
+        int minutsLat = enter();
+        if (minutsLat < 0 || !separador(':', DOS_PUNTS)) return false;
+        if (minutsLat > 60) return fallar(posicio, RANG);
+        posicio = cursor;
+        float segonsLat = segons();
+        if (Float.isNaN(segonsLat)) return false;
+        if (segonsLat > 60) return fallar(posicio, RANG);
+        char dirLat = caracter();
+        if (dirLat != 'N' && dirLat != 'S') return fallar(cursor, NORD_SUD);
+        cursor++;
+        if (!separador(',', COMA)) return false;
+
+        int posicioLon = cursor;
+        int grausLon = enter();
+        if (grausLon < 0 || !separador(':', DOS_PUNTS)) return false;
+        if (grausLon > 180) return fallar(posicioLon, RANG);
+        posicio = cursor;
+        int minutsLon = enter();
+        if (minutsLon < 0 || !separador(':', DOS_PUNTS)) return false;
+        if (minutsLon > 60) return fallar(posicio, RANG);
+        posicio = cursor;
+        float segonsLon = segons();
+        if (Float.isNaN(segonsLon)) return false;
+        if (segonsLon > 60) return fallar(posicio, RANG);
+        char dirLon = caracter();
+        if (dirLon != 'E' && dirLon != 'W') return fallar(cursor, EST_OEST);
+        cursor++;
+        if (cursor < fi) return fallar(cursor, FINAL);
+
+        float lat = Coordenades.convertirGrausDecimals(grausLat, minutsLat, segonsLat);
+        float lon = Coordenades.convertirGrausDecimals(grausLon, minutsLon, segonsLon);
+        // Amb 90 o 180 graus, els minuts i segons poden passar del pol o de l'antimeridià
+        if (lat > 90) return fallar(inici, RANG);
+        if (lon > 180) return fallar(posicioLon, RANG);
+        latitud = dirLat == 'S' ? -lat : lat;
+        longitud = dirLon == 'W' ? -lon : lon;
+        return true;
+    }
+
+    /**
+     * @brief Llegeix un enter sense signe des del cursor
+     * @pre ---
+     * @post Si al cursor hi ha xifres, les consumeix i en retorna el valor (o un valor més gran que MAX_ENTER si és
+     * més gran); si no, guarda l'error i retorna -1
+     * @return L'enter, o -1
+     */
+    private int enter() {
+        int desde = cursor;
+        int valor = 0;
+        while (cursor < fi) {
+            int d = caracter() - '0';
+            if (d < 0 || d > 9) break;
+            if (valor <= MAX_ENTER) valor = valor * 10 + d;
+            cursor++;
+        }
+        if (cursor == desde) {
+            fallar(cursor, XIFRA);
+            return -1;
+        }
+        return valor;
+    }
+
+    /**
+     * @brief Llegeix els segons (un decimal sense signe) des del cursor
+     * @pre ---
+     * @post Si al cursor hi ha xifres amb un punt decimal opcional, les consumeix i en retorna el mateix valor que
+     * Float.parseFloat; si no, guarda l'error i retorna NaN
+     * @return Els segons, o NaN
+     */
+    private float segons() {
+        int desde = cursor;
+        long mantissa = 0;
+        int xifres = 0;
+        int decimals = 0;
+        boolean punt = false;
+        while (cursor < fi) {
+            char c = caracter();
+            if (c == '.' && !punt) {
+                punt = true;
+            } else if (c >= '0' && c <= '9') {
+                if (mantissa <= MAX_MANTISSA) mantissa = mantissa * 10 + (c - '0');
+                xifres++;
+                if (punt) decimals++;
+            } else {
+                break;
+            }
+            cursor++;
+        }
+        if (xifres == 0) {
+            fallar(cursor, XIFRA);
+            return Float.NaN;
+        }
+        float valor = decimalExacte(mantissa, decimals);
+        if (!Float.isNaN(valor)) return valor;
+        // Massa xifres per calcular-lo exactament amb floats
+        return Float.parseFloat(subtext(desde, cursor));
+    }
+
+    /**
+     * @brief Consumeix un caràcter separador
+     * @param c Separador esperat
+     * @param motiu Motiu d'error si no hi és
+     * @pre ---
+     * @post Si al cursor hi ha c, el consumeix; si no, guarda l'error
+     * @return True si hi era, false en cas contrari
+     */
+    private boolean separador(char c, String motiu) {
+        if (caracter() != c) return fallar(cursor, motiu);
+        cursor++;
+        return true;
+    }
+
+    /**
+     * @brief Retorna el caràcter del cursor
+     * @pre ---
+     * @post Retorna el caràcter (o el byte) del cursor, o 0 si el cursor és al final de l'interval
+     * @return El caràcter del cursor
+     */
+    private char caracter() {
+        if (cursor >= fi) return 0;
+        return text != null ? text.charAt(cursor) : (char) (bytes.get(cursor) & 0xFF);
+    }
+
+    /**
+     * @brief Retorna un tros de l'interval com a text
+     * @param desde Primera posició
+     * @param fins Posició següent a l'última
+     * @pre El tros només té xifres i punts
+     * @post Retorna els caràcters del tros
+     * @return El text del tros
+     */
+    private String subtext(int desde, int fins) {
+        if (text != null) return text.subSequence(desde, fins).toString();
+        byte[] copia = new byte[fins - desde];
+        bytes.get(desde, copia);
+        return new String(copia, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @brief Guarda l'error de la lectura
+     * @param posicio Posició del caràcter incorrecte
+     * @param motiu Motiu de l'error
+     * @pre ---
+     * @post posicioError i error descriuen l'error
+     * @return False
+     */
+    private boolean fallar(int posicio, String motiu) {
+        posicioError = posicio - inici;
+        error = motiu;
+        return false;
+    }
+}
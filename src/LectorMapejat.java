@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file LectorMapejat.java
+ * @brief Fitxer que conté la classe LectorMapejat
+ */
+
+/**
+ * @class LectorMapejat
+ * @brief Lector de fitxers de text línia a línia sobre el fitxer projectat a memòria, que interpreta els valors
+ * directament dels bytes
+ *
+ * El fitxer es projecta a memòria (FileChannel.map) per finestres, i cada línia és un interval de bytes de la
+ * finestra actual: no es crea cap String si no es demana. Les línies acaben en '\n', '\r' o "\r\n", com a
+ * BufferedReader.readLine. Quan una línia no cap a la finestra, la finestra es torna a projectar a partir de l'inici
+ * de la línia (i, si cal, més gran), de manera que fitxers de qualsevol mida es llegeixen amb una finestra acotada.
+ *
+ * Les coordenades en graus, minuts i segons i els nombres es llegeixen dels bytes amb un camí ràpid que només
+ * accepta la forma habitual; si una línia no la té, el mètode ho indica (null o NaN) i qui llegeix ha de recórrer a
+ * text(), que dona la línia tal com la donaria readLine. El camí ràpid dona exactament el mateix valor que
+ * Integer.parseInt i Float.parseFloat.
+ */
+public class LectorMapejat implements AutoCloseable {
+    //Descripció general: Línies d'un fitxer projectat a memòria, amb lectura de valors sense passar per String
+
+    private static final int FINESTRA = 1 << 26; //bytes de cada finestra (64 MB)
+
+    private final RandomAccessFile fitxer;
+    private final FileChannel canal;
+    private final long mida;
+
+    private MappedByteBuffer buffer;
+    private long base;      //posició al fitxer del primer byte de la finestra
+    private int posicio;    //posició a la finestra del principi de la línia següent
+    private int inici;      //interval [inici, fi) de la línia actual a la finestra
+    private int fi;
+    private int iniciRetallat; //interval de la línia actual sense espais als extrems (calculat quan cal)
+    private int fiRetallat;
+    private int fiParaula;     //final de la primera paraula de la línia actual
+    private boolean retallada; //si ja s'han calculat els límits anteriors per a la línia actual
+    private byte[] copia = new byte[256]; //bytes de la línia actual quan es converteix a String
+    private final LectorCoordenades lectorCoordenades = new LectorCoordenades();
+
+    private int cursor;     //posició de lectura dins la línia actual, mentre s'interpreta un valor
+
+    /**
+     * @brief Constructor de la classe LectorMapejat
+     * @param nomFitxer Camí del fitxer a llegir
+     * @throws IOException Si el fitxer no existeix o no es pot llegir (amb el mateix missatge que FileReader)
+     * @pre ---
+     * @post El lector és just abans de la primera línia del fitxer
+     */
+    public LectorMapejat(String nomFitxer) throws IOException {
+        //Pre: ---
+        //Post: El lector és just abans de la primera línia del fitxer
+        this.fitxer = new RandomAccessFile(nomFitxer, "r");
+        this.canal = fitxer.getChannel();
+        this.mida = canal.size();
+        projectar(0, FINESTRA);
+    }
+
+    /**
+     * @brief Avança fins a la línia següent
+     * @return False si ja no hi ha més línies, true en cas contrari
+     * @throws IOException Si no es pot projectar el fitxer
+     * @pre ---
+     * @post Si hi ha una línia més, passa a ser la línia actual
+     */
+    public boolean seguentLinia() throws IOException {
+        //Pre: ---
+        //Post: Si hi ha una línia més, passa a ser la línia actual
+        if (base + posicio >= mida) return false;
+        int i = posicio;
+        while (true) {
+            int limit = buffer.limit();
+            while (i < limit) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') break;
+                i++;
+            }
+            boolean finalFitxer = base + limit >= mida;
+            // La línia (o el "\r\n" que la tanca) continua després de la finestra: es torna a projectar des del seu inici
+            if (!finalFitxer && (i == limit || (buffer.get(i) == '\r' && i + 1 == limit))) {
+                int longitud = i - posicio;
+                projectar(base + posicio, Math.max(FINESTRA, 2 * (longitud + 2)));
+                i = longitud;
+                continue;
+            }
+            inici = posicio;
+            fi = i;
+            retallada = false;
+            if (i < limit) {
+                i += buffer.get(i) == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n' ? 2 : 1;
+            }
+            posicio = i;
+            return true;
+        }
+    }
+
+    /**
+     * @brief Diu si la línia actual és buida
+     * @pre Hi ha línia actual
+     * @post Retorna si la línia només té espais o caràcters de control, amb el mateix criteri que String.trim
+     * @return True si la línia és buida, false en cas contrari
+     */
+    public boolean buida() {
+        //Pre: Hi ha línia actual
+        //Post: Retorna si la línia és buida
+        for (int i = inici; i < fi; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Retorna el primer caràcter no blanc de la línia actual
+     * @pre Hi ha línia actual i no és buida
+     * @post Retorna el primer byte de la línia que no és un espai ni un caràcter de control (si no és ASCII, és el
+     * primer byte del caràcter en UTF-8)
+     * @return El primer caràcter no blanc
+     */
+    public char primerCaracter() {
+        //Pre: Hi ha línia actual i no és buida
+        //Post: Retorna el primer caràcter no blanc de la línia
+        if (!retallada) retallar();
+        return (char) (buffer.get(iniciRetallat) & 0xFF);
+    }
+
+    /**
+     * @brief Diu si la línia actual és exactament un text
+     * @param text Text de caràcters ASCII
+     * @pre Hi ha línia actual
+     * @post Retorna si la línia té els mateixos caràcters que text
+     * @return True si la línia és text, false en cas contrari
+     */
+    public boolean es(String text) {
+        //Pre: Hi ha línia actual
+        //Post: Retorna si la línia és text
+        return fi - inici == text.length() && comencaPer(text, inici);
+    }
+
+    /**
+     * @brief Diu si la línia actual, sense espais als extrems, és un text o si la seva primera paraula ho és
+     * @param text Text de caràcters ASCII
+     * @pre Hi ha línia actual i no és buida
+     * @post Retorna el mateix que text.equals(linia.trim()) || text.equals(linia.split(" ")[0])
+     * @return True si la línia comença amb la paraula o frase text, false en cas contrari
+     */
+    public boolean comencaAmb(String text) {
+        //Pre: Hi ha línia actual i no és buida
+        //Post: Retorna si la línia sense espais als extrems, o la seva primera paraula, és text
+        if (!retallada) retallar();
+        int n = text.length();
+        return (n == fiRetallat - iniciRetallat && comencaPer(text, iniciRetallat))
+                || (n == fiParaula - inici && comencaPer(text, inici));
+    }
+
+    /**
+     * @brief Retorna la línia actual com a text
+     * @pre Hi ha línia actual
+     * @post Retorna la línia descodificada en UTF-8, sense el final de línia
+     * @return El text de la línia
+     */
+    public String text() {
+        //Pre: Hi ha línia actual
+        //Post: Retorna la línia com a text
+        int n = fi - inici;
+        if (copia.length < n) copia = new byte[Math.max(n, 2 * copia.length)];
+        buffer.get(inici, copia, 0, n);
+        return new String(copia, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Llegeix la línia actual com a coordenades en graus, minuts i segons
+     * @pre Hi ha línia actual
+     * @post Si la línia són unes coordenades vàlides per a LectorCoordenades, les retorna llegides directament dels
+     * bytes; si no, retorna null sense haver creat res
+     * @return Les coordenades, o null si no són vàlides
+     */
+    public Coordenades coordenades() {
+        //Pre: Hi ha línia actual
+        //Post: Retorna les coordenades de la línia, o null si no són vàlides
+        return lectorCoordenades.llegir(buffer, inici, fi) ? lectorCoordenades.coordenades() : null;
+    }
+
+    /**
+     * @brief Llegeix la línia actual com a nombre real
+     * @pre Hi ha línia actual
+     * @post Si la línia és un nombre decimal amb signe opcional i, com a molt, espais als extrems, retorna el mateix
+     * valor que Float.parseFloat; si no, retorna NaN
+     * @return El nombre, o NaN si s'ha de llegir del text
+     */
+    public float nombre() {
+        //Pre: Hi ha línia actual
+        //Post: Retorna el nombre de la línia, o NaN si no té la forma habitual
+        cursor = inici;
+        int b = fi;
+        while (cursor < b && (buffer.get(cursor) & 0xFF) <= ' ') cursor++;
+        while (b > cursor && (buffer.get(b - 1) & 0xFF) <= ' ') b--;
+        if (cursor == b) return Float.NaN;
+        boolean negatiu = false;
+        byte signe = buffer.get(cursor);
+        if (signe == '-' || signe == '+') {
+            negatiu = signe == '-';
+            cursor++;
+        }
+        int limit = fi;
+        fi = b;
+        float valor = decimal();
+        boolean complet = cursor == fi;
+        fi = limit;
+        if (Float.isNaN(valor) || !complet) return Float.NaN;
+        return negatiu ? -valor : valor;
+    }
+
+    /**
+     * @brief Tanca el fitxer
+     * @throws IOException Si no es pot tancar
+     * @pre ---
+     * @post El fitxer està tancat i el lector ja no es pot fer servir
+     */
+    @Override
+    public void close() throws IOException {
+        //Pre: ---
+        //Post: El fitxer està tancat
+        buffer = null;
+        canal.close();
+        fitxer.close();
+    }
+
+    /**
+     * @brief Llegeix un decimal sense signe des del cursor
+     * @pre ---
+     * @post Si al cursor hi ha xifres amb un punt decimal opcional, i el valor es pot calcular exactament amb una
+     * sola divisió en float, les consumeix i retorna el mateix valor que Float.parseFloat; si no, retorna NaN
+     * @return El decimal, o NaN
+     */
+    private float decimal() {
+        long mantissa = 0;
+        int xifres = 0;
+        int decimals = 0;
+        boolean punt = false;
+        while (cursor < fi) {
+            byte b = buffer.get(cursor);
+            if (b == '.' && !punt) {
+                punt = true;
+            } else if (b >= '0' && b <= '9') {
+                if (mantissa > Integer.MAX_VALUE) return Float.NaN;
+                mantissa = mantissa * 10 + (b - '0');
+                xifres++;
+                if (punt) decimals++;
+            } else {
+                break;
+            }
+            cursor++;
+        }
+        return xifres == 0 ? Float.NaN : LectorCoordenades.decimalExacte(mantissa, decimals);
+    }
+
+    /**
+     * @brief Calcula els límits de la línia actual sense espais als extrems i de la seva primera paraula
+     * @pre La línia actual no és buida
+     * @post iniciRetallat, fiRetallat i fiParaula corresponen a la línia actual
+     */
+    private void retallar() {
+        int a = inici;
+        int b = fi;
+        while ((buffer.get(a) & 0xFF) <= ' ') a++;
+        while ((buffer.get(b - 1) & 0xFF) <= ' ') b--;
+        int paraula = inici;
+        while (paraula < fi && buffer.get(paraula) != ' ') paraula++;
+        iniciRetallat = a;
+        fiRetallat = b;
+        fiParaula = paraula;
+        retallada = true;
+    }
+
+    /**
+     * @brief Diu si els bytes a partir d'una posició de la finestra són un text
+     * @param text Text de caràcters ASCII
+     * @param desde Posició a la finestra
+     * @pre Hi ha com a mínim text.length() bytes a partir de desde dins la línia actual
+     * @post Retorna si els bytes coincideixen amb els caràcters de text
+     * @return True si coincideixen, false en cas contrari
+     */
+    private boolean comencaPer(String text, int desde) {
+        for (int k = 0; k < text.length(); k++) {
+            if (buffer.get(desde + k) != text.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Projecta una finestra del fitxer a memòria
+     * @param desde Posició del fitxer on comença la finestra
+     * @param longitud Bytes que es volen a la finestra
+     * @throws IOException Si no es pot projectar
+     * @pre 0 <= desde <= mida del fitxer
+     * @post La finestra comença a desde i arriba fins a longitud bytes més enllà o fins al final del fitxer; la línia
+     * següent comença al principi de la finestra
+     */
+    private void projectar(long desde, long longitud) throws IOException {
+        long n = Math.min(Math.min(longitud, Integer.MAX_VALUE), mida - desde);
+        buffer = canal.map(FileChannel.MapMode.READ_ONLY, desde, n);
+        base = desde;
+        posicio = 0;
+    }
+}
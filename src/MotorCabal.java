@@ -0,0 +1,276 @@
+import java.util.Arrays;
+
+/**
+ * @file MotorCabal.java
+ * @brief Fitxer que conté la classe MotorCabal
+ */
+
+/**
+ * @class MotorCabal
+ * @brief Càlcul del cabal de tots els nodes i canonades d'una component en una sola passada
+ *
+ * Parteix de la demanda que ha calculat un MotorDemanda per a la mateixa component. Cada origen aporta el mínim entre
+ * el seu cabal i la seva demanda, i els nodes es processen en ordre topològic (en el sentit de l'aigua): el cabal
+ * d'un node obert és el que aporta (si és origen) més el que li arriba de cada predecessor, que reparteix el seu
+ * cabal entre les seves sortides en proporció a la demanda de cada canonada respecte de la demanda del node.
+ * Com que la demanda i el cabal es guarden per ordinal i per índex de canonada, els resultats d'una component no es
+ * toquen en calcular-ne una altra; cada node recorda la versió de la topologia amb què s'ha calculat, i el resultat
+ * es reaprofita mentre la topologia no canviï.
+ *
+ * Els canvis d'aixetes, de demandes i de cabals d'origen no canvien la topologia: el node afectat queda pendent i,
+ * a la consulta següent, només es torna a calcular la demanda del seu con d'entrada i el cabal del con de sortida
+ * de tots els nodes que han canviat, de manera que el cost depèn de la mida del canvi i no de la de la xarxa.
+ */
+public class MotorCabal {
+    //Descripció general: Càlcul del cabal d'una component en ordre topològic, reaprofitable entre consultes
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Topologia topologia;
+    private final RegistreNodes registre;
+    private final MotorDemanda motorDemanda;
+    private final Recorregut recorregut;
+
+    private static final byte DEMANDA = 1; ///< El node té pendent recalcular la seva demanda (i el cabal que en depèn)
+    private static final byte CABAL = 2;   ///< El node té pendent recalcular el seu cabal
+
+    private float[] cabalNodes = new float[MIDA_INICIAL];     //cabal de cada ordinal
+    private float[] cabalCanonades = new float[MIDA_INICIAL]; //cabal de cada índex de canonada
+    private int[] versions = new int[MIDA_INICIAL];           //versió de la topologia amb què s'ha calculat cada ordinal (0 = mai)
+    private boolean[] repartits = new boolean[MIDA_INICIAL];  //si el cabal de cada ordinal ja s'ha repartit
+    private int[] pendents = new int[MIDA_INICIAL];           //predecessors encara no repartits de cada ordinal
+    private int[] ordre = new int[MIDA_INICIAL];
+    private int[] con = new int[MIDA_INICIAL];
+    private int[] llavors = new int[2 * MIDA_INICIAL];
+    private byte[] bruts = new byte[MIDA_INICIAL];            //canvis pendents de cada ordinal (DEMANDA | CABAL)
+    private int[] brutsDemanda = new int[MIDA_INICIAL];
+    private int nBrutsDemanda;
+    private int[] brutsCabal = new int[MIDA_INICIAL];
+    private int nBrutsCabal;
+
+    /**
+     * @brief Constructor de la classe MotorCabal
+     * @param topologia Topologia de la xarxa
+     * @param registre Registre de nodes de la xarxa
+     * @param motorDemanda Motor que calcula la demanda de les mateixes components
+     * @pre topologia, registre i motorDemanda comparteixen ordinals
+     * @post S'ha creat un motor sense cap cabal calculat
+     */
+    public MotorCabal(Topologia topologia, RegistreNodes registre, MotorDemanda motorDemanda) {
+        //Pre: topologia, registre i motorDemanda comparteixen ordinals
+        //Post: S'ha creat un motor sense cap cabal calculat
+        this.topologia = topologia;
+        this.registre = registre;
+        this.motorDemanda = motorDemanda;
+        this.recorregut = new Recorregut(topologia);
+    }
+
+    /**
+     * @brief Diu si el resultat del node és vàlid per a una versió de la topologia
+     * @param u Ordinal del node
+     * @param versio Versió actual de la topologia (> 0)
+     * @pre u és un ordinal vàlid
+     * @post Retorna si la component de u s'ha calculat amb aquesta versió
+     * @return True si es pot reaprofitar el resultat, false si cal calcular-lo
+     */
+    public boolean calculat(int u, int versio) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna si la component de u s'ha calculat amb aquesta versió
+        return u < versions.length && versions[u] == versio;
+    }
+
+    /**
+     * @brief Calcula la demanda i el cabal de tots els nodes i canonades d'una component
+     * @param membres Ordinals dels nodes de la component
+     * @param n Nombre de posicions vàlides de membres
+     * @param versio Versió actual de la topologia (> 0)
+     * @pre membres és una component connexa de la topologia
+     * @post Els resultats de la component queden associats a versio, tant a aquest motor com al de demanda
+     */
+    public void calcular(int[] membres, int n, int versio) {
+        //Pre: membres és una component connexa de la topologia
+        //Post: Els resultats de la component queden associats a versio
+        reservar();
+        motorDemanda.recalcular(membres, n, con);
+        recalcular(membres, n);
+        for (int k = 0; k < n; k++) {
+            versions[membres[k]] = versio;
+        }
+    }
+
+    /**
+     * @brief Anota que la demanda pròpia o l'aixeta d'un node ha canviat
+     * @param u Ordinal del node
+     * @param versio Versió actual de la topologia (> 0)
+     * @pre u és un ordinal vàlid
+     * @post Si la component de u està calculada, actualitzar recalcularà la demanda aigües amunt de u i el cabal que en depèn
+     */
+    public void marcarDemanda(int u, int versio) {
+        //Pre: u és un ordinal vàlid
+        //Post: Si la component de u està calculada, el canvi queda pendent
+        if (!calculat(u, versio) || (bruts[u] & DEMANDA) != 0) return;
+        bruts[u] |= DEMANDA;
+        brutsDemanda[nBrutsDemanda++] = u;
+    }
+
+    /**
+     * @brief Anota que el cabal d'un origen ha canviat
+     * @param u Ordinal de l'origen
+     * @param versio Versió actual de la topologia (> 0)
+     * @pre u és un ordinal vàlid
+     * @post Si la component de u està calculada, actualitzar recalcularà el cabal aigües avall de u
+     */
+    public void marcarCabal(int u, int versio) {
+        //Pre: u és un ordinal vàlid
+        //Post: Si la component de u està calculada, el canvi queda pendent
+        if (!calculat(u, versio) || (bruts[u] & CABAL) != 0) return;
+        bruts[u] |= CABAL;
+        brutsCabal[nBrutsCabal++] = u;
+    }
+
+    /**
+     * @brief Aplica els canvis pendents a les components calculades
+     * @param versio Versió actual de la topologia (> 0)
+     * @pre ---
+     * @post Els resultats de les components calculades amb versio corresponen a l'estat actual de la xarxa;
+     * els canvis de components que s'han de tornar a calcular senceres es descarten
+     */
+    public void actualitzar(int versio) {
+        //Pre: ---
+        //Post: Els resultats de les components calculades amb versio corresponen a l'estat actual
+        if (nBrutsDemanda == 0 && nBrutsCabal == 0) return;
+        reservar();
+        int n = 0;
+        for (int k = 0; k < nBrutsDemanda; k++) {
+            int u = brutsDemanda[k];
+            bruts[u] &= ~DEMANDA;
+            if (calculat(u, versio)) llavors[n++] = u;
+        }
+        nBrutsDemanda = 0;
+        if (n > 0) {
+            n = motorDemanda.recalcular(llavors, n, con);
+            System.arraycopy(con, 0, llavors, 0, n);
+        }
+        for (int k = 0; k < nBrutsCabal; k++) {
+            int u = brutsCabal[k];
+            bruts[u] &= ~CABAL;
+            if (calculat(u, versio)) llavors[n++] = u;
+        }
+        nBrutsCabal = 0;
+        if (n > 0) recalcular(llavors, n);
+    }
+
+    /**
+     * @brief Retorna el cabal calculat d'un node
+     * @param u Ordinal del node
+     * @pre u pertany a una component calculada
+     * @post Retorna el cabal que arriba al node
+     * @return El cabal del node
+     */
+    public float cabalNode(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna el cabal que arriba al node
+        return cabalNodes[u];
+    }
+
+    /**
+     * @brief Retorna el cabal calculat d'una canonada
+     * @param c Índex de la canonada
+     * @pre c entra a un node d'una component calculada
+     * @post Retorna el cabal que passa per la canonada
+     * @return El cabal de la canonada
+     */
+    public float cabalCanonada(int c) {
+        //Pre: c entra a un node d'una component calculada
+        //Post: Retorna el cabal que passa per la canonada
+        return cabalCanonades[c];
+    }
+
+    /**
+     * @brief Torna a calcular el cabal dels nodes aigües avall d'un conjunt de nodes
+     * @param canviats Ordinals dels nodes el cabal dels quals pot haver canviat
+     * @param n Nombre de posicions vàlides de canviats
+     * @pre La demanda de la component és definitiva i els nodes de fora del con de sortida de canviats tenen el cabal calculat
+     * @post El cabal dels nodes del con de sortida de canviats i de les canonades que hi entren correspon a l'estat actual
+     */
+    private void recalcular(int[] canviats, int n) {
+        int m = recorregut.amplada(canviats, n, Recorregut.SORTIDES, con);
+        for (int k = 0; k < m; k++) {
+            repartits[con[k]] = false;
+        }
+        int cua = 0;
+        for (int k = 0; k < m; k++) {
+            int v = con[k];
+            int p = topologia.grauEntrada(v);
+            for (int i = topologia.iniciEntrades(v); i < topologia.fiEntrades(v); i++) {
+                cabalCanonades[topologia.canonadaEntrada(i)] = 0;
+                if (repartits[topologia.origenEntrada(i)]) p--;
+            }
+            pendents[v] = p;
+            if (p == 0) ordre[cua++] = v;
+        }
+        for (int cap = 0; cap < cua; cap++) {
+            int v = ordre[cap];
+            sumar(v);
+            repartits[v] = true;
+            for (int i = topologia.iniciSortides(v); i < topologia.fiSortides(v); i++) {
+                int x = topologia.destiSortida(i);
+                if (--pendents[x] == 0) ordre[cua++] = x;
+            }
+        }
+        if (cua < m) {
+            for (int k = 0; k < m; k++) {
+                if (!repartits[con[k]]) sumar(con[k]);
+            }
+        }
+    }
+
+    /**
+     * @brief Calcula el cabal d'un node a partir del dels seus predecessors ja repartits
+     * @param v Ordinal del node
+     * @pre El cabal dels predecessors repartits de v és definitiu
+     * @post El cabal de v és el que aporta (si és origen) més el que li arriba per les canonades d'entrada, que queden actualitzades
+     */
+    private void sumar(int v) {
+        float cabal = 0;
+        if (registre.tipus(v) == RegistreNodes.ORIGEN) {
+            cabal = Math.min(((Origen) registre.node(v)).cabal(), motorDemanda.demandaNode(v));
+        }
+        if (registre.node(v).aixetaOberta()) {
+            for (int i = topologia.iniciEntrades(v); i < topologia.fiEntrades(v); i++) {
+                int u = topologia.origenEntrada(i);
+                if (!repartits[u] || cabalNodes[u] == 0) continue;
+                int c = topologia.canonadaEntrada(i);
+                float diferencia = cabalNodes[u] / motorDemanda.demandaNode(u);
+                float cabalCanonada = diferencia * motorDemanda.demandaCanonada(c);
+                cabalCanonades[c] = cabalCanonada;
+                cabal += cabalCanonada;
+            }
+        }
+        cabalNodes[v] = cabal;
+    }
+
+    /**
+     * @brief Amplia els vectors si la topologia ha crescut
+     * @pre ---
+     * @post Els vectors tenen una posició per a cada ordinal i cada canonada
+     */
+    private void reservar() {
+        if (cabalNodes.length < topologia.nNodes()) {
+            int mida = Math.max(topologia.nNodes(), cabalNodes.length * 2);
+            cabalNodes = Arrays.copyOf(cabalNodes, mida);
+            versions = Arrays.copyOf(versions, mida);
+            repartits = Arrays.copyOf(repartits, mida);
+            bruts = Arrays.copyOf(bruts, mida);
+            brutsDemanda = Arrays.copyOf(brutsDemanda, mida);
+            brutsCabal = Arrays.copyOf(brutsCabal, mida);
+            pendents = new int[mida];
+            ordre = new int[mida];
+            con = new int[mida];
+            llavors = new int[2 * mida];
+        }
+        if (cabalCanonades.length < topologia.nCanonades()) {
+            cabalCanonades = Arrays.copyOf(cabalCanonades, Math.max(topologia.nCanonades(), cabalCanonades.length * 2));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.Arrays;
+
+/**
+ * @file MotorDemanda.java
+ * @brief Fitxer que conté la classe MotorDemanda
+ */
+
+/**
+ * @class MotorDemanda
+ * @brief Càlcul de la demanda teòrica de tots els nodes i canonades d'una component en una sola passada
+ *
+ * Els nodes es processen en ordre topològic invers (un node es tracta quan ja s'han tractat tots els que rep aigua
+ * a través de les seves sortides), de manera que la demanda de cada node es calcula una sola vegada a partir de la
+ * dels seus successors. La demanda d'un node és la seva demanda actual si és terminal més la part que li toca de
+ * cada node al qual envia aigua. Un node reparteix la seva demanda entre les canonades d'entrada a parts iguals si
+ * totes tenen la mateixa capacitat, o proporcionalment a la capacitat en cas contrari. Les canonades que venen d'un
+ * node amb l'aixeta tancada no reben res, i la part de cada canonada es limita a la seva capacitat.
+ *
+ * Repartir la demanda agregada equival a repartir la de cada terminal per separat i sumar-les, excepte quan una
+ * canonada se satura: aquí la capacitat limita el total que passa per la canonada, no cada aportació per separat.
+ * Els nodes que formen part d'un cicle (o que en depenen) no es reparteixen: només tenen la seva demanda pròpia
+ * i la que els arriba dels successors que sí que s'han repartit.
+ *
+ * La demanda d'un node només depèn de la dels nodes aigües avall i de l'estat de la seva aixeta, de manera que quan
+ * canvia la demanda d'un terminal o l'aixeta d'un node n'hi ha prou de tornar a calcular els nodes aigües amunt
+ * d'aquest (el seu con d'entrada); la resta de la component conserva el resultat anterior.
+ */
+public class MotorDemanda {
+    //Descripció general: Càlcul de la demanda d'una component en ordre topològic invers
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Topologia topologia;
+    private final RegistreNodes registre;
+    private final Recorregut recorregut;
+
+    private float[] demandaNodes = new float[MIDA_INICIAL];     //demanda de cada ordinal
+    private float[] demandaCanonades = new float[MIDA_INICIAL]; //demanda de cada índex de canonada
+    private boolean[] repartits = new boolean[MIDA_INICIAL];    //si la demanda de cada ordinal ja s'ha repartit
+    private int[] pendents = new int[MIDA_INICIAL];             //successors encara no repartits de cada ordinal
+    private int[] ordre = new int[MIDA_INICIAL];
+
+    /**
+     * @brief Constructor de la classe MotorDemanda
+     * @param topologia Topologia de la xarxa
+     * @param registre Registre de nodes de la xarxa
+     * @pre topologia i registre comparteixen ordinals
+     * @post S'ha creat un motor sense cap demanda calculada
+     */
+    public MotorDemanda(Topologia topologia, RegistreNodes registre) {
+        //Pre: topologia i registre comparteixen ordinals
+        //Post: S'ha creat un motor sense cap demanda calculada
+        this.topologia = topologia;
+        this.registre = registre;
+        this.recorregut = new Recorregut(topologia);
+    }
+
+    /**
+     * @brief Torna a calcular la demanda dels nodes aigües amunt d'un conjunt de nodes que han canviat
+     * @param canviats Ordinals dels nodes la demanda pròpia o l'aixeta dels quals ha canviat
+     * @param n Nombre de posicions vàlides de canviats
+     * @param con Vector on es guarden els nodes recalculats
+     * @pre Els nodes de fora del con d'entrada de canviats que rebien aigua dels del con tenen la demanda calculada
+     * amb la topologia actual (p. ex. canviats és tota una component, o la seva component ja s'havia calculat
+     * i només han canviat demandes o aixetes), i con té com a mínim tantes posicions com nodes té la topologia
+     * @post La demanda dels nodes de con i de les canonades que en surten torna a correspondre a l'estat actual
+     * @return El nombre de nodes recalculats (canviats i tots els que hi envien aigua, directament o no)
+     */
+    public int recalcular(int[] canviats, int n, int[] con) {
+        //Pre: Els nodes aigües avall del con d'entrada de canviats tenen la demanda calculada i con té prou posicions
+        //Post: La demanda del con d'entrada de canviats torna a correspondre a l'estat actual
+        reservar();
+        int m = recorregut.amplada(canviats, n, Recorregut.ENTRADES, con);
+        for (int k = 0; k < m; k++) {
+            repartits[con[k]] = false;
+        }
+        int cua = 0;
+        for (int k = 0; k < m; k++) {
+            int v = con[k];
+            int p = topologia.grauSortida(v);
+            for (int i = topologia.iniciSortides(v); i < topologia.fiSortides(v); i++) {
+                demandaCanonades[topologia.canonadaSortida(i)] = 0;
+                if (repartits[topologia.destiSortida(i)]) p--;
+            }
+            pendents[v] = p;
+            if (p == 0) ordre[cua++] = v;
+        }
+        for (int cap = 0; cap < cua; cap++) {
+            int v = ordre[cap];
+            sumar(v);
+            repartits[v] = true;
+            for (int i = topologia.iniciEntrades(v); i < topologia.fiEntrades(v); i++) {
+                int w = topologia.origenEntrada(i);
+                if (--pendents[w] == 0) ordre[cua++] = w;
+            }
+        }
+        if (cua < m) {
+            for (int k = 0; k < m; k++) {
+                if (!repartits[con[k]]) sumar(con[k]);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @brief Retorna la demanda calculada d'un node
+     * @param u Ordinal del node
+     * @pre u pertany a una component calculada
+     * @post Retorna la demanda teòrica del node
+     * @return La demanda del node
+     */
+    public float demandaNode(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna la demanda teòrica del node
+        return demandaNodes[u];
+    }
+
+    /**
+     * @brief Retorna la demanda calculada d'una canonada
+     * @param c Índex de la canonada
+     * @pre c entra a un node de una component calculada
+     * @post Retorna la demanda teòrica que passa per la canonada
+     * @return La demanda de la canonada
+     */
+    public float demandaCanonada(int c) {
+        //Pre: c entra a un node de una component calculada
+        //Post: Retorna la demanda teòrica que passa per la canonada
+        return demandaCanonades[c];
+    }
+
+    /**
+     * @brief Calcula la demanda d'un node a partir de la dels seus successors ja repartits
+     * @param v Ordinal del node
+     * @pre La demanda dels successors repartits de v és definitiva
+     * @post La demanda de v és la pròpia més la de les seves canonades de sortida, que queden actualitzades
+     */
+    private void sumar(int v) {
+        float demanda = registre.tipus(v) == RegistreNodes.TERMINAL ? ((Terminal) registre.node(v)).demandaActual() : 0;
+        if (registre.node(v).aixetaOberta()) {
+            for (int i = topologia.iniciSortides(v); i < topologia.fiSortides(v); i++) {
+                int x = topologia.destiSortida(i);
+                if (!repartits[x]) continue;
+                int c = topologia.canonadaSortida(i);
+                float demandaAjustada = quota(x, c);
+                demandaCanonades[c] = demandaAjustada;
+                demanda += demandaAjustada;
+            }
+        }
+        demandaNodes[v] = demanda;
+    }
+
+    /**
+     * @brief Calcula la part de la demanda d'un node que li correspon a una de les seves canonades d'entrada
+     * @param x Ordinal del node
+     * @param c Índex d'una canonada que entra a x
+     * @pre La demanda de x és definitiva
+     * @post Retorna la quota de c (a parts iguals o proporcional a la capacitat), limitada a la capacitat de c
+     * @return La demanda de la canonada
+     */
+    private float quota(int x, int c) {
+        float demanda = demandaNodes[x];
+        if (demanda == 0) return 0;
+        int count = topologia.grauEntrada(x);
+        boolean iguals = count > 1 && topologia.capacitatsEntradaIguals(x);
+        float capacitat = topologia.capacitat(c);
+        float quota = iguals ? demanda / count : (demanda / topologia.sumaCapacitatsEntrada(x)) * capacitat;
+        return Math.min(quota, capacitat);
+    }
+
+    /**
+     * @brief Amplia els vectors si la topologia ha crescut
+     * @pre ---
+     * @post Els vectors tenen una posició per a cada ordinal i cada canonada
+     */
+    private void reservar() {
+        if (demandaNodes.length < topologia.nNodes()) {
+            int mida = Math.max(topologia.nNodes(), demandaNodes.length * 2);
+            demandaNodes = Arrays.copyOf(demandaNodes, mida);
+            repartits = Arrays.copyOf(repartits, mida);
+            pendents = new int[mida];
+            ordre = new int[mida];
+        }
+        if (demandaCanonades.length < topologia.nCanonades()) {
+            demandaCanonades = Arrays.copyOf(demandaCanonades, Math.max(topologia.nCanonades(), demandaCanonades.length * 2));
+        }
+    }
+}
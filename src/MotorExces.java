@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * @file MotorExces.java
+ * @brief Fitxer que conté la classe MotorExces
+ */
+
+/**
+ * @class MotorExces
+ * @brief Càlcul del cabal que passaria per cada canonada d'una component sense cicles si se'n satisfés tota la demanda
+ *
+ * Només hi participen els nodes oberts als quals arriba aigua, és a dir, els que tenen un camí obert des d'algun
+ * origen (CaminsOberts). Cada terminal reparteix la seva demanda entre les canonades
+ * d'entrada proporcionalment a la capacitat, i cada node que no és terminal demana la suma del que li demanen les
+ * sortides. Després cada origen sense entrades reparteix el seu cabal (o, si no en té, la capacitat de la seva
+ * sortida més gran) entre les sortides en la mateixa proporció que la demanda, i cada node reparteix la suma del
+ * que li arriba de la mateixa manera.
+ *
+ * Tot surt d'un sol ordre topològic de la component, el que la xarxa manté a OrdreTopologic: la demanda es reparteix
+ * en l'ordre invers i el cabal en l'ordre de l'aigua, de manera que cada node i cada canonada es tracten un cop per
+ * passada. Les canonades calculades queden marcades amb l'època del càlcul, i consultar-ne l'excés és una simple
+ * comparació.
+ */
+public class MotorExces {
+    //Descripció general: Demanda i cabal de les canonades d'una component sense cicles, en dues passades topològiques
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Topologia topologia;
+    private final RegistreNodes registre;
+
+    private CaminsOberts camins; //nodes de la component que s'està calculant als quals arriba aigua
+    private float[] demandaNodes = new float[MIDA_INICIAL];     //demanda de cada ordinal
+    private float[] demandaCanonades = new float[MIDA_INICIAL]; //demanda de cada índex de canonada
+    private float[] cabalCanonades = new float[MIDA_INICIAL];   //cabal de cada índex de canonada
+    private int[] epoques = new int[MIDA_INICIAL];              //època en què s'ha calculat cada índex de canonada (0 = mai)
+    private int epoca;
+
+    /**
+     * @brief Constructor de la classe MotorExces
+     * @param topologia Topologia de la xarxa
+     * @param registre Registre de nodes de la xarxa
+     * @pre topologia i registre comparteixen ordinals
+     * @post S'ha creat un motor sense cap canonada calculada
+     */
+    public MotorExces(Topologia topologia, RegistreNodes registre) {
+        //Pre: topologia i registre comparteixen ordinals
+        //Post: S'ha creat un motor sense cap canonada calculada
+        this.topologia = topologia;
+        this.registre = registre;
+    }
+
+    /**
+     * @brief Calcula la demanda i el cabal de totes les canonades d'una component
+     * @param ordre Ordinals dels nodes de la component, en ordre topològic
+     * @param n Nombre de posicions vàlides de ordre
+     * @param camins Nodes de la component amb camí obert, que són els que hi participen
+     * @pre ordre és una component connexa de la topologia sense cicles, amb cada node després de tots els que li
+     * envien aigua, i camins s'ha calculat per a aquesta component
+     * @post exces(c) respon per a cada canonada de la component; les de càlculs anteriors deixen de constar com a
+     * calculades
+     */
+    public void calcular(int[] ordre, int n, CaminsOberts camins) {
+        //Pre: ordre és una component sense cicles en ordre topològic i camins s'ha calculat per a aquesta component
+        //Post: exces(c) respon per a cada canonada de la component
+        reservar();
+        this.camins = camins;
+        epoca++;
+
+        // Demanda, en sentit contrari a l'aigua
+        for (int k = n - 1; k >= 0; k--) {
+            int u = ordre[k];
+            if (camins.obert(u)) repartirDemanda(u);
+        }
+
+        // Cabal, en el sentit de l'aigua
+        for (int k = 0; k < n; k++) {
+            int u = ordre[k];
+            if (camins.obert(u)) repartirCabal(u);
+        }
+    }
+
+    /**
+     * @brief Diu si una canonada de l'última component calculada portaria més cabal que la seva capacitat
+     * @param c Índex de la canonada
+     * @pre c és un índex vàlid de la topologia
+     * @post Retorna si c uneix dos nodes als quals arriba aigua de l'última component calculada i el seu cabal
+     * sobrepassa la capacitat
+     * @return True si la canonada té excés de cabal, false en cas contrari
+     */
+    public boolean exces(int c) {
+        //Pre: c és un índex vàlid de la topologia
+        //Post: Retorna si c té excés de cabal a l'última component calculada
+        return epoques[c] == epoca && cabalCanonades[c] > topologia.capacitat(c);
+    }
+
+    /**
+     * @brief Calcula la demanda d'un node i la reparteix entre les seves canonades d'entrada
+     * @param u Ordinal d'un node al qual arriba aigua
+     * @pre La demanda de totes les canonades de u cap a nodes als quals arriba aigua és definitiva
+     * @post La demanda de u és la de terminal o la suma de les seves sortides, i cada entrada des d'un node al qual
+     * arriba aigua en té la part proporcional a la seva capacitat
+     */
+    private void repartirDemanda(int u) {
+        float demanda = 0f;
+        if (registre.tipus(u) == RegistreNodes.TERMINAL) {
+            demanda = ((Terminal) registre.node(u)).demandaActual();
+        } else {
+            for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                if (camins.obert(topologia.destiSortida(i))) demanda += demandaCanonades[topologia.canonadaSortida(i)];
+            }
+        }
+        demandaNodes[u] = demanda;
+
+        float sumaCapacitats = 0f;
+        for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+            if (camins.obert(topologia.origenEntrada(i))) sumaCapacitats += topologia.capacitat(topologia.canonadaEntrada(i));
+        }
+        float demandaPerCapacitat = demanda / sumaCapacitats;
+        for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+            if (camins.obert(topologia.origenEntrada(i))) {
+                int c = topologia.canonadaEntrada(i);
+                demandaCanonades[c] = demandaPerCapacitat * topologia.capacitat(c);
+            }
+        }
+    }
+
+    /**
+     * @brief Calcula el cabal d'un node i el reparteix entre les seves canonades de sortida
+     * @param u Ordinal d'un node al qual arriba aigua
+     * @pre La demanda de u és definitiva i el cabal de les seves entrades des de nodes als quals arriba aigua també
+     * @post El cabal de u és el de l'origen o la suma de les seves entrades, i cada sortida cap a un node al qual
+     * arriba aigua en té la part proporcional a la seva demanda
+     */
+    private void repartirCabal(int u) {
+        float cabal = 0f;
+        if (registre.tipus(u) == RegistreNodes.ORIGEN && topologia.grauEntrada(u) == 0) {
+            cabal = ((Origen) registre.node(u)).cabal();
+            if (cabal == 0) {
+                for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                    cabal = Math.max(cabal, topologia.capacitat(topologia.canonadaSortida(i)));
+                }
+            }
+        } else {
+            for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+                if (camins.obert(topologia.origenEntrada(i))) cabal += cabalCanonades[topologia.canonadaEntrada(i)];
+            }
+        }
+
+        float demandaPerCabal = demandaNodes[u] / cabal;
+        for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+            if (camins.obert(topologia.destiSortida(i))) {
+                int c = topologia.canonadaSortida(i);
+                cabalCanonades[c] = demandaCanonades[c] / demandaPerCabal;
+                epoques[c] = epoca;
+            }
+        }
+    }
+
+    /**
+     * @brief Amplia els vectors si la topologia ha crescut
+     * @pre ---
+     * @post Els vectors tenen una posició per a cada ordinal i cada canonada
+     */
+    private void reservar() {
+        if (demandaNodes.length < topologia.nNodes()) {
+            int mida = Math.max(topologia.nNodes(), demandaNodes.length * 2);
+            demandaNodes = new float[mida];
+        }
+        if (demandaCanonades.length < topologia.nCanonades()) {
+            int mida = Math.max(topologia.nCanonades(), demandaCanonades.length * 2);
+            demandaCanonades = new float[mida];
+            cabalCanonades = new float[mida];
+            epoques = Arrays.copyOf(epoques, mida);
+        }
+    }
+}
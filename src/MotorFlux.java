@@ -0,0 +1,366 @@
+import java.util.Arrays;
+
+/**
+ * @file MotorFlux.java
+ * @brief Fitxer que conté la classe MotorFlux
+ */
+
+/**
+ * @class MotorFlux
+ * @brief Càlcul del flux màxim d'una component amb l'algorisme de Dinic
+ *
+ * El flux surt de tots els orígens de la component i arriba a tots els seus terminals. En lloc d'afegir nodes a la
+ * xarxa, el motor treballa amb una font i un pou virtuals: la font té una canonada de capacitat il·limitada cap a
+ * cada origen i cada terminal té una canonada de capacitat il·limitada cap al pou. Aquestes canonades no existeixen
+ * enlloc més que en la manera de recórrer els veïns, i la xarxa no es modifica. Només hi participen els nodes amb
+ * l'aixeta oberta.
+ *
+ * La xarxa residual tampoc no es construeix: per a cada índex de canonada es guarda el flux que hi passa i la
+ * capacitat que li queda, de manera que una canonada u→v es pot recórrer cap endavant (des de u) si li queda
+ * capacitat i cap enrere (des de v) si porta flux. Cada fase calcula els nivells (distància des de la font) amb un
+ * recorregut en amplada i després busca camins d'augment que només avancen d'un nivell al següent, amb una posició
+ * actual per node perquè cada canonada descartada no es torni a mirar en tota la fase. La cerca de camins és
+ * iterativa, sense recursivitat.
+ *
+ * Quan ja no queda cap camí d'augment, l'últim recorregut en amplada marca els nodes que encara són accessibles
+ * des de la font: són el costat de la font del tall mínim, i les canonades que van d'aquests nodes a un node obert
+ * de l'altre costat són les que limiten el subministrament (totes van plenes). Per tant el tall surt del mateix
+ * càlcul, sense cap recorregut addicional.
+ *
+ * Com el MotorCabal, cada node recorda la versió de la xarxa amb què s'ha calculat la seva component, i el resultat
+ * (fluxos, valor i costat del tall) es reaprofita mentre la xarxa no canviï.
+ */
+public class MotorFlux {
+    //Descripció general: Flux màxim d'una component amb l'algorisme de Dinic, amb font i pou virtuals
+
+    private static final int MIDA_INICIAL = 16;
+    private static final int VIRTUAL = -1; ///< Pas d'un camí per una canonada virtual (de la font o cap al pou)
+
+    private final Topologia topologia;
+    private final RegistreNodes registre;
+
+    private float[] flux = new float[MIDA_INICIAL];       //flux de cada índex de canonada
+    private float[] residu = new float[MIDA_INICIAL];     //capacitat que queda a cada índex de canonada
+    private boolean[] actius = new boolean[MIDA_INICIAL]; //si cada ordinal participa en el càlcul
+    private boolean[] pous = new boolean[MIDA_INICIAL];   //si cada ordinal té una canonada virtual cap al pou
+    private int[] versions = new int[MIDA_INICIAL];       //versió de la xarxa amb què s'ha calculat cada ordinal (0 = mai)
+    private float[] valors = new float[MIDA_INICIAL];     //flux màxim de la component de cada ordinal
+    private int[] nivells = new int[MIDA_INICIAL];
+    private int[] actuals = new int[MIDA_INICIAL];        //següent canonada a provar de cada ordinal, dins de la fase
+    private int[] cua = new int[MIDA_INICIAL];
+    private int[] origens = new int[MIDA_INICIAL];        //veïns de la font
+    private int nOrigens;
+    private int[] camiCanonades = new int[MIDA_INICIAL];
+    private boolean[] camiEndavant = new boolean[MIDA_INICIAL];
+    private int[] camiNodes = new int[MIDA_INICIAL];      //node d'on surt cada pas del camí
+    private int font;
+    private int pou;
+
+    /**
+     * @brief Constructor de la classe MotorFlux
+     * @param topologia Topologia de la xarxa
+     * @param registre Registre de nodes de la xarxa
+     * @pre topologia i registre comparteixen ordinals
+     * @post S'ha creat un motor sense cap flux calculat
+     */
+    public MotorFlux(Topologia topologia, RegistreNodes registre) {
+        //Pre: topologia i registre comparteixen ordinals
+        //Post: S'ha creat un motor sense cap flux calculat
+        this.topologia = topologia;
+        this.registre = registre;
+    }
+
+    /**
+     * @brief Diu si el flux màxim de la component d'un node és vàlid per a una versió de la xarxa
+     * @param u Ordinal del node
+     * @param versio Versió actual de la xarxa (> 0)
+     * @pre u és un ordinal vàlid
+     * @post Retorna si la component de u s'ha calculat amb aquesta versió
+     * @return True si es pot reaprofitar el resultat, false si cal calcular-lo
+     */
+    public boolean calculat(int u, int versio) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna si la component de u s'ha calculat amb aquesta versió
+        return u < versions.length && versions[u] == versio;
+    }
+
+    /**
+     * @brief Calcula el flux màxim dels orígens als terminals d'una component
+     * @param membres Ordinals dels nodes de la component
+     * @param n Nombre de posicions vàlides de membres
+     * @param versio Versió actual de la xarxa (> 0)
+     * @pre membres és una component connexa de la topologia
+     * @post flux(c) retorna el flux de cada canonada entre nodes oberts de la component (la resta no en porten),
+     * valor(u) el flux màxim total, i els resultats queden associats a versio
+     */
+    public void calcular(int[] membres, int n, int versio) {
+        //Pre: membres és una component connexa de la topologia
+        //Post: flux(c) i valor(u) retornen el flux màxim de la component, associat a versio
+        reservar();
+        font = topologia.nNodes();
+        pou = font + 1;
+        nOrigens = 0;
+        for (int k = 0; k < n; k++) {
+            int u = membres[k];
+            actius[u] = registre.node(u).aixetaOberta();
+            pous[u] = actius[u] && registre.tipus(u) == RegistreNodes.TERMINAL && topologia.grauSortida(u) == 0;
+            if (actius[u] && registre.tipus(u) == RegistreNodes.ORIGEN && topologia.grauEntrada(u) == 0) {
+                origens[nOrigens++] = u;
+            }
+            for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+                int c = topologia.canonadaEntrada(i);
+                flux[c] = 0;
+                residu[c] = topologia.capacitat(c);
+            }
+        }
+        actius[font] = true;
+        actius[pou] = true;
+        pous[font] = false;
+        pous[pou] = false;
+        float total = 0;
+        while (nivellar(membres, n)) {
+            for (int k = 0; k < n; k++) {
+                actuals[membres[k]] = 0;
+            }
+            actuals[font] = 0;
+            total += bloquejar();
+        }
+        // L'últim recorregut ja no arriba al pou: els nodes amb nivell formen el costat de la font del tall mínim
+        for (int k = 0; k < n; k++) {
+            versions[membres[k]] = versio;
+            valors[membres[k]] = total;
+        }
+    }
+
+    /**
+     * @brief Retorna el flux màxim calculat de la component d'un node
+     * @param u Ordinal del node
+     * @pre u pertany a una component calculada
+     * @post Retorna el flux total que pot anar dels orígens als terminals de la component
+     * @return El flux màxim de la component
+     */
+    public float valor(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna el flux màxim de la component
+        return valors[u];
+    }
+
+    /**
+     * @brief Diu si un node queda al costat de la font del tall mínim
+     * @param u Ordinal del node
+     * @pre u pertany a una component calculada
+     * @post Retorna si u té l'aixeta oberta i encara és accessible des d'algun origen per la xarxa residual final
+     * @return True si u és al costat de la font, false si és al costat del pou o no participa en el càlcul
+     */
+    public boolean costatFont(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna si u és accessible des dels orígens per la xarxa residual final
+        return actius[u] && nivells[u] >= 0;
+    }
+
+    /**
+     * @brief Diu si un node participa en el càlcul del flux màxim
+     * @param u Ordinal del node
+     * @pre u pertany a una component calculada
+     * @post Retorna si u tenia l'aixeta oberta en calcular la seva component
+     * @return True si u participa en el càlcul
+     */
+    public boolean actiu(int u) {
+        //Pre: u pertany a una component calculada
+        //Post: Retorna si u participa en el càlcul
+        return actius[u];
+    }
+
+    /**
+     * @brief Retorna el flux calculat d'una canonada
+     * @param c Índex de la canonada
+     * @pre c entra a un node d'una component calculada
+     * @post Retorna el flux que passa per la canonada (0 si toca algun node tancat)
+     * @return El flux de la canonada
+     */
+    public float flux(int c) {
+        //Pre: c entra a un node d'una component calculada
+        //Post: Retorna el flux que passa per la canonada
+        return flux[c];
+    }
+
+    /**
+     * @brief Calcula el nivell de cada node de la xarxa residual
+     * @param membres Ordinals dels nodes de la component
+     * @param n Nombre de posicions vàlides de membres
+     * @pre ---
+     * @post Cada node actiu accessible des de la font per la xarxa residual té com a nivell la seva distància a la font;
+     * la resta tenen -1
+     * @return True si el pou és accessible des de la font
+     */
+    private boolean nivellar(int[] membres, int n) {
+        for (int k = 0; k < n; k++) {
+            nivells[membres[k]] = -1;
+        }
+        nivells[pou] = -1;
+        nivells[font] = 0;
+        cua[0] = font;
+        int fi = 1;
+        for (int cap = 0; cap < fi && nivells[pou] < 0; cap++) {
+            int u = cua[cap];
+            int grau = grau(u);
+            for (int a = 0; a < grau; a++) {
+                int v = vei(u, a);
+                if (nivells[v] < 0 && actius[v] && residual(u, a) > 0) {
+                    nivells[v] = nivells[u] + 1;
+                    cua[fi++] = v;
+                }
+            }
+        }
+        return nivells[pou] >= 0;
+    }
+
+    /**
+     * @brief Satura tots els camins d'augment de la fase actual
+     * @pre Els nivells són els de la fase actual i la posició actual de cada node és 0
+     * @post No queda cap camí de la font al pou que avanci d'un nivell al següent per canonades amb capacitat residual
+     * @return El flux afegit en aquesta fase
+     */
+    private float bloquejar() {
+        float afegit = 0;
+        int u = font;
+        int longitud = 0;
+        while (true) {
+            if (u == pou) {
+                float minim = Float.MAX_VALUE;
+                for (int k = 0; k < longitud; k++) {
+                    int c = camiCanonades[k];
+                    if (c != VIRTUAL) minim = Math.min(minim, camiEndavant[k] ? residu[c] : flux[c]);
+                }
+                int primerSaturat = longitud;
+                for (int k = 0; k < longitud; k++) {
+                    int c = camiCanonades[k];
+                    if (c == VIRTUAL) continue;
+                    if (camiEndavant[k]) {
+                        residu[c] -= minim;
+                        flux[c] += minim;
+                        if (residu[c] <= 0 && primerSaturat == longitud) primerSaturat = k;
+                    } else {
+                        flux[c] -= minim;
+                        residu[c] += minim;
+                        if (flux[c] <= 0 && primerSaturat == longitud) primerSaturat = k;
+                    }
+                }
+                afegit += minim;
+                // Es torna enrere fins al node d'on surt la primera canonada saturada
+                longitud = primerSaturat;
+                u = camiNodes[longitud];
+                continue;
+            }
+            int grau = grau(u);
+            int a = actuals[u];
+            while (a < grau) {
+                int v = vei(u, a);
+                if (actius[v] && nivells[v] == nivells[u] + 1 && residual(u, a) > 0) break;
+                a++;
+            }
+            actuals[u] = a;
+            if (a < grau) {
+                camiNodes[longitud] = u;
+                camiCanonades[longitud] = canonada(u, a);
+                camiEndavant[longitud] = u == font || a < topologia.grauSortida(u);
+                longitud++;
+                u = vei(u, a);
+            } else {
+                // Cap canonada útil: el node ja no pot arribar al pou en aquesta fase
+                nivells[u] = -1;
+                if (longitud == 0) return afegit;
+                longitud--;
+                u = camiNodes[longitud];
+                actuals[u]++;
+            }
+        }
+    }
+
+    /**
+     * @brief Retorna el nombre de canonades (reals i virtuals) d'un node
+     * @param u Ordinal del node, o la font
+     * @pre u no és el pou
+     * @post Retorna el nombre d'orígens si u és la font; si no, les sortides, les entrades i, si en té, la canonada cap al pou
+     * @return El nombre de canonades de u
+     */
+    private int grau(int u) {
+        if (u == font) return nOrigens;
+        return topologia.grauSortida(u) + topologia.grauEntrada(u) + (pous[u] ? 1 : 0);
+    }
+
+    /**
+     * @brief Retorna el veí d'un node a través de la seva canonada a-èsima (sortides, entrades i canonada cap al pou)
+     * @param u Ordinal del node, o la font
+     * @param a Posició de la canonada, 0 <= a < grau(u)
+     * @pre u no és el pou
+     * @post Retorna l'altre extrem de la canonada
+     * @return L'ordinal del veí (o el pou)
+     */
+    private int vei(int u, int a) {
+        if (u == font) return origens[a];
+        int sortides = topologia.grauSortida(u);
+        if (a < sortides) return topologia.destiSortida(topologia.iniciSortides(u) + a);
+        int entrades = topologia.grauEntrada(u);
+        if (a < sortides + entrades) return topologia.origenEntrada(topologia.iniciEntrades(u) + a - sortides);
+        return pou;
+    }
+
+    /**
+     * @brief Retorna l'índex de la canonada a-èsima d'un node
+     * @param u Ordinal del node, o la font
+     * @param a Posició de la canonada, 0 <= a < grau(u)
+     * @pre u no és el pou
+     * @post Retorna l'índex de la canonada, o VIRTUAL si és una canonada de la font o cap al pou
+     * @return L'índex de la canonada
+     */
+    private int canonada(int u, int a) {
+        if (u == font) return VIRTUAL;
+        int sortides = topologia.grauSortida(u);
+        if (a < sortides) return topologia.canonadaSortida(topologia.iniciSortides(u) + a);
+        int entrades = topologia.grauEntrada(u);
+        if (a < sortides + entrades) return topologia.canonadaEntrada(topologia.iniciEntrades(u) + a - sortides);
+        return VIRTUAL;
+    }
+
+    /**
+     * @brief Retorna la capacitat residual de la canonada a-èsima d'un node en el sentit que surt del node
+     * @param u Ordinal del node, o la font
+     * @param a Posició de la canonada, 0 <= a < grau(u)
+     * @pre u no és el pou
+     * @post Retorna la capacitat que queda si és una sortida, el flux que porta si és una entrada, i infinit si és virtual
+     * @return La capacitat residual
+     */
+    private float residual(int u, int a) {
+        int c = canonada(u, a);
+        if (c == VIRTUAL) return Float.POSITIVE_INFINITY;
+        return a < topologia.grauSortida(u) ? residu[c] : flux[c];
+    }
+
+    /**
+     * @brief Amplia els vectors si la topologia ha crescut
+     * @pre ---
+     * @post Els vectors tenen una posició per a cada ordinal (més la font i el pou) i per a cada canonada
+     */
+    private void reservar() {
+        if (actius.length < topologia.nNodes() + 2) {
+            int mida = Math.max(topologia.nNodes() + 2, actius.length * 2);
+            actius = Arrays.copyOf(actius, mida);
+            pous = new boolean[mida];
+            versions = Arrays.copyOf(versions, mida);
+            valors = Arrays.copyOf(valors, mida);
+            nivells = Arrays.copyOf(nivells, mida);
+            actuals = new int[mida];
+            cua = new int[mida];
+            origens = new int[mida];
+            camiCanonades = new int[mida];
+            camiEndavant = new boolean[mida];
+            camiNodes = new int[mida];
+        }
+        if (flux.length < topologia.nCanonades()) {
+            int mida = Math.max(topologia.nCanonades(), flux.length * 2);
+            flux = Arrays.copyOf(flux, mida);
+            residu = Arrays.copyOf(residu, mida);
+        }
+    }
+}
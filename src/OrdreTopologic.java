@@ -0,0 +1,292 @@
+import java.util.Arrays;
+
+/**
+ * @file OrdreTopologic.java
+ * @brief Fitxer que conté la classe OrdreTopologic
+ */
+
+/**
+ * @class OrdreTopologic
+ * @brief Ordre topològic de tots els nodes de la xarxa, mantingut a mesura que s'afegeixen canonades
+ *
+ * Cada node té una posició, i a les components sense cicles tota canonada va d'una posició a una de més gran. Un node
+ * nou va al final. Quan una canonada nova u→v no respecta l'ordre, només es reordenen els nodes afectats, amb
+ * l'algorisme de Pearce i Kelly: es busquen els nodes accessibles des de v que són abans de u i els nodes des dels
+ * quals s'arriba a u que són després de v, i es reparteixen les posicions que ocupaven posant els segons davant dels
+ * primers. Si des de v s'arriba a u, la canonada tanca un cicle: la component queda marcada com a cíclica a
+ * ComponentsConnexes i a partir d'aquí ja no se'n manté l'ordre. Saber si una component té cicles costa O(1).
+ *
+ * Les cerques es fan sobre unes llistes de veïns pròpies, que creixen amb cada canonada.
+ *
+ * Els nodes no es poden eliminar: les posicions d'una component que deixés de tenir cicles no serien vàlides.
+ */
+public class OrdreTopologic {
+    //Descripció general: Ordre topològic dinàmic (Pearce-Kelly) dels nodes de la xarxa
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final ComponentsConnexes components;
+
+    private int nNodes;
+    private int[] posicions = new int[MIDA_INICIAL]; //posició de cada ordinal a l'ordre
+    private int[] nodes = new int[MIDA_INICIAL];     //ordinal de cada posició
+    private int[][] successors = new int[MIDA_INICIAL][];
+    private int[] nSuccessors = new int[MIDA_INICIAL];
+    private int[][] predecessors = new int[MIDA_INICIAL][];
+    private int[] nPredecessors = new int[MIDA_INICIAL];
+    private int[] marques = new int[MIDA_INICIAL];
+    private int epoca;
+    private int[] pila = new int[MIDA_INICIAL];
+    private int[] endavant = new int[MIDA_INICIAL];  //posicions dels nodes accessibles des del destí de la canonada nova
+    private int[] enrere = new int[MIDA_INICIAL];    //posicions dels nodes des dels quals s'arriba a l'inici de la canonada nova
+    private int[] lliures = new int[2 * MIDA_INICIAL];
+
+    /**
+     * @brief Constructor de la classe OrdreTopologic
+     * @param components Índex de components connexes de la xarxa, on es marquen els cicles
+     * @pre components encara no té cap node
+     * @post S'ha creat un ordre buit
+     */
+    public OrdreTopologic(ComponentsConnexes components) {
+        //Pre: components encara no té cap node
+        //Post: S'ha creat un ordre buit
+        this.components = components;
+    }
+
+    /**
+     * @brief Afegeix un node nou al final de l'ordre
+     * @param u Ordinal del node
+     * @pre u és el següent ordinal de la topologia
+     * @post u té la posició més gran de l'ordre i no té cap veí
+     */
+    public void afegirNode(int u) {
+        //Pre: u és el següent ordinal de la topologia
+        //Post: u té la posició més gran de l'ordre
+        if (u >= posicions.length) {
+            int mida = Math.max(u + 1, posicions.length * 2);
+            posicions = Arrays.copyOf(posicions, mida);
+            nodes = Arrays.copyOf(nodes, mida);
+            successors = Arrays.copyOf(successors, mida);
+            nSuccessors = Arrays.copyOf(nSuccessors, mida);
+            predecessors = Arrays.copyOf(predecessors, mida);
+            nPredecessors = Arrays.copyOf(nPredecessors, mida);
+            marques = Arrays.copyOf(marques, mida);
+            pila = new int[mida];
+            endavant = new int[mida];
+            enrere = new int[mida];
+            lliures = new int[2 * mida];
+        }
+        posicions[u] = nNodes;
+        nodes[nNodes] = u;
+        successors[u] = new int[0];
+        predecessors[u] = new int[0];
+        nNodes++;
+    }
+
+    /**
+     * @brief Construeix de cop l'ordre de tota una topologia
+     * @param topologia Topologia ja carregada amb tots els nodes i les canonades
+     * @param origens Ordinal del node d'inici de cada canonada
+     * @param destins Ordinal del node de destí de cada canonada
+     * @pre L'ordre és buit, topologia i components ja tenen els nodes i les canonades, i els dos vectors tenen la
+     * mateixa mida
+     * @post L'ordre és topològic a totes les components sense cicles, i les components amb cicles queden marcades com a
+     * cícliques a components
+     */
+    public void carregar(Topologia topologia, int[] origens, int[] destins) {
+        //Pre: L'ordre és buit i topologia i components ja tenen els nodes i les canonades
+        //Post: L'ordre és topològic a les components sense cicles i les altres consten com a cícliques
+        int nNodes = topologia.nNodes();
+        int mida = Math.max(MIDA_INICIAL, nNodes);
+        posicions = new int[mida];
+        nodes = new int[mida];
+        successors = new int[mida][];
+        nSuccessors = new int[mida];
+        predecessors = new int[mida][];
+        nPredecessors = new int[mida];
+        marques = new int[mida];
+        pila = new int[mida];
+        endavant = new int[mida];
+        enrere = new int[mida];
+        lliures = new int[2 * mida];
+        for (int c = 0; c < origens.length; c++) {
+            nSuccessors[origens[c]]++;
+            nPredecessors[destins[c]]++;
+        }
+        for (int u = 0; u < nNodes; u++) {
+            successors[u] = new int[nSuccessors[u]];
+            predecessors[u] = new int[nPredecessors[u]];
+        }
+        Arrays.fill(nSuccessors, 0);
+        Arrays.fill(nPredecessors, 0);
+        for (int c = 0; c < origens.length; c++) {
+            afegirVei(successors, nSuccessors, origens[c], destins[c]);
+            afegirVei(predecessors, nPredecessors, destins[c], origens[c]);
+        }
+
+        // Ordre topològic de tota la xarxa: els nodes que no s'hi poden ordenar depenen d'algun cicle, i van al final
+        for (int u = 0; u < nNodes; u++) {
+            pila[u] = u;
+        }
+        int n = new Recorregut(topologia).ordreTopologic(pila, nNodes, Recorregut.SORTIDES, nodes);
+        Arrays.fill(posicions, -1);
+        for (int p = 0; p < n; p++) {
+            posicions[nodes[p]] = p;
+        }
+        for (int u = 0; u < nNodes; u++) {
+            if (posicions[u] < 0) {
+                components.marcarCicle(u);
+                posicions[u] = n;
+                nodes[n++] = u;
+            }
+        }
+        this.nNodes = nNodes;
+    }
+
+    /**
+     * @brief Actualitza l'ordre després d'afegir una canonada
+     * @param u Ordinal del node d'inici de la canonada
+     * @param v Ordinal del node de destí de la canonada
+     * @pre u i v ja són a la mateixa component de components
+     * @post Si la component no tenia cicles i la canonada no en tanca cap, l'ordre de la component continua sent
+     * topològic; si la canonada tanca un cicle, la component queda marcada com a cíclica
+     */
+    public void afegirCanonada(int u, int v) {
+        //Pre: u i v ja són a la mateixa component de components
+        //Post: L'ordre de la component continua sent topològic, o la component queda marcada com a cíclica
+        afegirVei(successors, nSuccessors, u, v);
+        afegirVei(predecessors, nPredecessors, v, u);
+        if (components.teCicle(u) || posicions[u] < posicions[v]) return;
+        int limitInferior = posicions[v];
+        int limitSuperior = posicions[u];
+
+        novaEpoca();
+        int nEndavant = 0;
+        int cim = 0;
+        pila[cim++] = v;
+        marques[v] = epoca;
+        while (cim > 0) {
+            int w = pila[--cim];
+            endavant[nEndavant++] = posicions[w];
+            for (int i = 0; i < nSuccessors[w]; i++) {
+                int x = successors[w][i];
+                if (x == u) {
+                    components.marcarCicle(u);
+                    return;
+                }
+                if (marques[x] != epoca && posicions[x] < limitSuperior) {
+                    marques[x] = epoca;
+                    pila[cim++] = x;
+                }
+            }
+        }
+
+        int nEnrere = 0;
+        pila[cim++] = u;
+        marques[u] = epoca;
+        while (cim > 0) {
+            int w = pila[--cim];
+            enrere[nEnrere++] = posicions[w];
+            for (int i = 0; i < nPredecessors[w]; i++) {
+                int x = predecessors[w][i];
+                if (marques[x] != epoca && posicions[x] > limitInferior) {
+                    marques[x] = epoca;
+                    pila[cim++] = x;
+                }
+            }
+        }
+
+        // Els nodes d'enrere ocupen les primeres posicions lliures i els d'endavant les últimes, cada grup en el seu ordre
+        Arrays.sort(enrere, 0, nEnrere);
+        Arrays.sort(endavant, 0, nEndavant);
+        for (int k = 0; k < nEnrere; k++) {
+            enrere[k] = nodes[enrere[k]];
+            lliures[k] = posicions[enrere[k]];
+        }
+        for (int k = 0; k < nEndavant; k++) {
+            endavant[k] = nodes[endavant[k]];
+            lliures[nEnrere + k] = posicions[endavant[k]];
+        }
+        Arrays.sort(lliures, 0, nEnrere + nEndavant);
+        for (int k = 0; k < nEnrere; k++) {
+            situar(enrere[k], lliures[k]);
+        }
+        for (int k = 0; k < nEndavant; k++) {
+            situar(endavant[k], lliures[nEnrere + k]);
+        }
+    }
+
+    /**
+     * @brief Diu si la component d'un node té algun cicle dirigit
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna si alguna canonada de la component de u ha tancat un cicle, sense recórrer-la
+     * @return True si la component té cicles, false en cas contrari
+     */
+    public boolean teCicle(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna si la component de u té cicles
+        return components.teCicle(u);
+    }
+
+    /**
+     * @brief Ordena un conjunt de nodes segons l'ordre mantingut
+     * @param membres Nodes a ordenar
+     * @param n Nombre de posicions vàlides de membres
+     * @param ordre Vector on es guarda el resultat
+     * @pre Els nodes són d'una component sense cicles i ordre té com a mínim n posicions
+     * @post ordre conté els n nodes, cada un després de tots els que li envien aigua
+     */
+    public void ordenar(int[] membres, int n, int[] ordre) {
+        //Pre: Els nodes són d'una component sense cicles i ordre té prou posicions
+        //Post: ordre conté els nodes en ordre topològic
+        for (int k = 0; k < n; k++) {
+            ordre[k] = posicions[membres[k]];
+        }
+        Arrays.sort(ordre, 0, n);
+        for (int k = 0; k < n; k++) {
+            ordre[k] = nodes[ordre[k]];
+        }
+    }
+
+    /**
+     * @brief Afegeix un veí al final de la llista d'un node
+     * @param llistes Llistes de veïns de cada ordinal
+     * @param mides Ocupació de cada llista
+     * @param u Ordinal del node
+     * @param v Ordinal del veí
+     * @pre ---
+     * @post v és l'últim veí de u
+     */
+    private static void afegirVei(int[][] llistes, int[] mides, int u, int v) {
+        int n = mides[u];
+        if (n == llistes[u].length) llistes[u] = Arrays.copyOf(llistes[u], Math.max(2, n * 2));
+        llistes[u][n] = v;
+        mides[u] = n + 1;
+    }
+
+    /**
+     * @brief Posa un node en una posició
+     * @param u Ordinal del node
+     * @param posicio Posició nova
+     * @pre ---
+     * @post posicions i nodes són coherents per a u i posicio
+     */
+    private void situar(int u, int posicio) {
+        posicions[u] = posicio;
+        nodes[posicio] = u;
+    }
+
+    /**
+     * @brief Comença una època nova de marques
+     * @pre ---
+     * @post Cap node consta com a marcat
+     */
+    private void novaEpoca() {
+        epoca++;
+        if (epoca == 0) {
+            Arrays.fill(marques, 0);
+            epoca = 1;
+        }
+    }
+}
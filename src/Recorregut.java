@@ -0,0 +1,315 @@
+import java.util.Arrays;
+
+/**
+ * @file Recorregut.java
+ * @brief Fitxer que conté la classe Recorregut
+ */
+
+/**
+ * @class Recorregut
+ * @brief Recorreguts iteratius (amb pila explícita) sobre els ordinals d'una Topologia
+ *
+ * Cap recorregut fa crides recursives: la profunditat només està limitada per la memòria, no per la pila del fil.
+ * A més dels recorreguts clàssics (preordre, postordre, amplada i ordre topològic), ofereix una pila de marcs on
+ * cada marc guarda un node i la posició dins de les seves canonades. Amb aquesta pila es poden reescriure sense
+ * recursió els recorreguts en profunditat, visitant els nodes en el mateix ordre que la versió recursiva.
+ * Les marques de visitat es reutilitzen entre recorreguts d'una mateixa instància (per època), de manera que una
+ * instància no torna a reservar memòria mentre la xarxa no creix.
+ */
+public class Recorregut {
+    //Descripció general: Recorreguts iteratius sobre una topologia
+
+    public static final int SORTIDES = 1; ///< Recórrer les canonades en el sentit de l'aigua
+    public static final int ENTRADES = 2; ///< Recórrer les canonades en sentit contrari a l'aigua
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Topologia topologia;
+
+    private int[] pilaNodes = new int[MIDA_INICIAL];
+    private int[] pilaPosicions = new int[MIDA_INICIAL];
+    private int mida;
+    private boolean sortides;
+
+    private int[] marques = new int[MIDA_INICIAL];
+    private int epoca;
+    private int[] pendents = new int[MIDA_INICIAL]; //entrades encara no processades de cada node (ordre topològic)
+
+    /**
+     * @brief Constructor de la classe Recorregut
+     * @param topologia Topologia sobre la qual es faran els recorreguts
+     * @pre topologia != null
+     * @post S'ha creat un recorregut amb la pila buida
+     */
+    public Recorregut(Topologia topologia) {
+        //Pre: topologia != null
+        //Post: S'ha creat un recorregut amb la pila buida
+        this.topologia = topologia;
+        this.mida = 0;
+        this.sortides = true;
+    }
+
+    /**
+     * @brief Buida la pila de marcs i fixa el sentit en què els marcs recorreran les canonades
+     * @param direccio SORTIDES o ENTRADES
+     * @pre ---
+     * @post La pila de marcs és buida
+     */
+    public void iniciar(int direccio) {
+        //Pre: ---
+        //Post: La pila de marcs és buida
+        this.sortides = direccio == SORTIDES;
+        this.mida = 0;
+    }
+
+    /**
+     * @brief Apila un marc nou per al node u
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post El cim de la pila és un marc de u situat abans de la seva primera canonada
+     */
+    public void apilar(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: El cim de la pila és un marc de u situat abans de la seva primera canonada
+        if (mida == pilaNodes.length) {
+            int nova = mida * 2;
+            pilaNodes = Arrays.copyOf(pilaNodes, nova);
+            pilaPosicions = Arrays.copyOf(pilaPosicions, nova);
+        }
+        pilaNodes[mida] = u;
+        pilaPosicions[mida] = 0;
+        mida++;
+    }
+
+    /**
+     * @brief Diu si la pila de marcs és buida
+     * @pre ---
+     * @post Retorna si no hi ha cap marc a la pila
+     * @return True si la pila és buida, false en cas contrari
+     */
+    public boolean buida() {
+        //Pre: ---
+        //Post: Retorna si no hi ha cap marc a la pila
+        return mida == 0;
+    }
+
+    /**
+     * @brief Retorna el node del marc del cim
+     * @pre La pila no és buida
+     * @post Retorna l'ordinal del node del cim
+     * @return L'ordinal del node del cim
+     */
+    public int cim() {
+        //Pre: La pila no és buida
+        //Post: Retorna l'ordinal del node del cim
+        return pilaNodes[mida - 1];
+    }
+
+    /**
+     * @brief Desapila el marc del cim
+     * @pre La pila no és buida
+     * @post S'ha tret el marc del cim
+     */
+    public void desapilar() {
+        //Pre: La pila no és buida
+        //Post: S'ha tret el marc del cim
+        mida--;
+    }
+
+    /**
+     * @brief Avança el marc del cim a la seva canonada següent
+     * @pre La pila no és buida
+     * @post Si queden canonades al marc del cim, se n'ha consumit una
+     * @return La posició CSR (de sortida o d'entrada segons el sentit fixat) de la canonada, o -1 si ja no en queden
+     */
+    public int seguent() {
+        //Pre: La pila no és buida
+        //Post: Si queden canonades al marc del cim, se n'ha consumit una
+        int u = pilaNodes[mida - 1];
+        int k = pilaPosicions[mida - 1];
+        if (k >= (sortides ? topologia.grauSortida(u) : topologia.grauEntrada(u))) return -1;
+        pilaPosicions[mida - 1] = k + 1;
+        return (sortides ? topologia.iniciSortides(u) : topologia.iniciEntrades(u)) + k;
+    }
+
+    /**
+     * @brief Visita en preordre tots els nodes accessibles des d'un node
+     * @param inici Ordinal del node inicial
+     * @param direccio SORTIDES o ENTRADES
+     * @param ordre Vector on es guarden els nodes visitats
+     * @pre inici és un ordinal vàlid i ordre té com a mínim tantes posicions com nodes accessibles
+     * @post ordre conté els nodes accessibles en el mateix ordre que un DFS recursiu; la pila de marcs queda buida
+     * @return El nombre de nodes visitats
+     */
+    public int preordre(int inici, int direccio, int[] ordre) {
+        //Pre: inici és un ordinal vàlid i ordre té prou posicions
+        //Post: ordre conté els nodes accessibles en preordre
+        novaEpoca();
+        iniciar(direccio);
+        int n = 0;
+        marques[inici] = epoca;
+        ordre[n++] = inici;
+        apilar(inici);
+        while (!buida()) {
+            int i = seguent();
+            if (i < 0) {
+                desapilar();
+                continue;
+            }
+            int v = vei(i);
+            if (marques[v] != epoca) {
+                marques[v] = epoca;
+                ordre[n++] = v;
+                apilar(v);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @brief Visita en postordre tots els nodes accessibles des d'un node
+     * @param inici Ordinal del node inicial
+     * @param direccio SORTIDES o ENTRADES
+     * @param ordre Vector on es guarden els nodes visitats
+     * @pre inici és un ordinal vàlid i ordre té com a mínim tantes posicions com nodes accessibles
+     * @post ordre conté els nodes accessibles; cada node hi apareix després de tots els que s'han visitat a partir
+     * d'ell. La pila de marcs queda buida
+     * @return El nombre de nodes visitats
+     */
+    public int postordre(int inici, int direccio, int[] ordre) {
+        //Pre: inici és un ordinal vàlid i ordre té prou posicions
+        //Post: ordre conté els nodes accessibles en postordre
+        novaEpoca();
+        iniciar(direccio);
+        int n = 0;
+        marques[inici] = epoca;
+        apilar(inici);
+        while (!buida()) {
+            int i = seguent();
+            if (i < 0) {
+                ordre[n++] = cim();
+                desapilar();
+                continue;
+            }
+            int v = vei(i);
+            if (marques[v] != epoca) {
+                marques[v] = epoca;
+                apilar(v);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @brief Visita en amplada tots els nodes accessibles des d'un conjunt de nodes
+     * @param inicis Ordinals dels nodes inicials, que es poden repetir
+     * @param n Nombre de posicions vàlides de inicis
+     * @param direccio SORTIDES o ENTRADES
+     * @param ordre Vector on es guarden els nodes visitats, que fa de cua
+     * @pre inicis conté ordinals vàlids i ordre té com a mínim tantes posicions com nodes accessibles
+     * @post ordre conté, sense repeticions, els nodes accessibles des d'algun node de inicis (inclosos ells mateixos)
+     * @return El nombre de nodes visitats
+     */
+    public int amplada(int[] inicis, int n, int direccio, int[] ordre) {
+        //Pre: inicis conté ordinals vàlids i ordre té prou posicions
+        //Post: ordre conté els nodes accessibles des d'algun node de inicis
+        novaEpoca();
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            if (marques[inicis[k]] != epoca) {
+                marques[inicis[k]] = epoca;
+                ordre[m++] = inicis[k];
+            }
+        }
+        for (int cap = 0; cap < m; cap++) {
+            int u = ordre[cap];
+            if (direccio == SORTIDES) {
+                for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                    int v = topologia.destiSortida(i);
+                    if (marques[v] != epoca) {
+                        marques[v] = epoca;
+                        ordre[m++] = v;
+                    }
+                }
+            } else {
+                for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+                    int v = topologia.origenEntrada(i);
+                    if (marques[v] != epoca) {
+                        marques[v] = epoca;
+                        ordre[m++] = v;
+                    }
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @brief Ordena topològicament un conjunt de nodes tancat per canonades
+     * @param nodes Nodes a ordenar
+     * @param n Nombre de posicions vàlides de nodes
+     * @param direccio SORTIDES per ordenar en el sentit de l'aigua (primer els nodes sense entrades),
+     * ENTRADES per ordenar en sentit contrari (primer els nodes sense sortides)
+     * @param ordre Vector on es guarda l'ordre topològic
+     * @pre Tota canonada que toca un node de nodes té els dos extrems a nodes (p. ex. una component connexa o tota la
+     * topologia), nodes i ordre són vectors diferents i ordre té com a mínim n posicions
+     * @post ordre conté els nodes que no depenen de cap cicle, cada un després de tots els que el precedeixen en la
+     * direcció donada
+     * @return El nombre de nodes ordenats; és menor que n si i només si hi ha algun cicle
+     */
+    public int ordreTopologic(int[] nodes, int n, int direccio, int[] ordre) {
+        //Pre: nodes és tancat per canonades i ordre té prou posicions
+        //Post: ordre conté un ordre topològic dels nodes que no depenen de cap cicle
+        if (pendents.length < topologia.nNodes()) {
+            pendents = new int[Math.max(topologia.nNodes(), pendents.length * 2)];
+        }
+        boolean sortides = direccio == SORTIDES;
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            int u = nodes[k];
+            pendents[u] = sortides ? topologia.grauEntrada(u) : topologia.grauSortida(u);
+            if (pendents[u] == 0) ordre[m++] = u;
+        }
+        for (int cap = 0; cap < m; cap++) {
+            int u = ordre[cap];
+            if (sortides) {
+                for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+                    int v = topologia.destiSortida(i);
+                    if (--pendents[v] == 0) ordre[m++] = v;
+                }
+            } else {
+                for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+                    int v = topologia.origenEntrada(i);
+                    if (--pendents[v] == 0) ordre[m++] = v;
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @brief Retorna el node de l'altre extrem de la canonada d'una posició retornada per seguent()
+     * @param i Posició retornada per l'última crida a seguent()
+     * @pre i és l'última posició retornada per seguent()
+     * @post Retorna el veí del node del cim a través d'aquesta posició
+     * @return L'ordinal del veí
+     */
+    public int vei(int i) {
+        //Pre: i és l'última posició retornada per seguent()
+        //Post: Retorna el veí del node del cim a través d'aquesta posició
+        return sortides ? topologia.destiSortida(i) : topologia.origenEntrada(i);
+    }
+
+    /**
+     * @brief Comença una època nova de marques, ampliant-les si la topologia ha crescut
+     * @pre ---
+     * @post Cap node consta com a marcat
+     */
+    private void novaEpoca() {
+        if (marques.length < topologia.nNodes()) {
+            marques = new int[Math.max(topologia.nNodes(), marques.length * 2)];
+            epoca = 0;
+        }
+        epoca++;
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @file RegistreNodes.java
+ * @brief Fitxer que conté la classe RegistreNodes
+ */
+
+/**
+ * @class RegistreNodes
+ * @brief Registre dels nodes d'una xarxa: identificador -> ordinal dens -> node i tipus
+ *
+ * Cada node rep en registrar-se un ordinal dens (0, 1, 2, ...), que és el mateix que té a la Topologia.
+ * Els identificadors es guarden internats: l'identificador canònic d'un ordinal és sempre la mateixa instància
+ * de String, de manera que el seu hash només es calcula un cop. El tipus de cada node es guarda com una etiqueta
+ * de byte que ja dona l'ordre Terminal < Connexio < Origen que fa servir la xarxa en llistar nodes.
+ */
+public class RegistreNodes {
+    //Descripció general: Registre dels nodes d'una xarxa indexat per identificador i per ordinal
+
+    public static final byte TERMINAL = 0; ///< Etiqueta de tipus dels nodes terminals
+    public static final byte CONNEXIO = 1; ///< Etiqueta de tipus dels nodes de connexió
+    public static final byte ORIGEN = 2; ///< Etiqueta de tipus dels nodes d'origen
+    public static final int NO_REGISTRAT = -1; ///< Ordinal retornat per un identificador desconegut
+
+    private static final int MIDA_INICIAL = 16;
+
+    private final Map<String, Integer> ordinals = new HashMap<>(); //identificador internat -> ordinal
+    private Node[] nodes = new Node[MIDA_INICIAL];
+    private String[] ids = new String[MIDA_INICIAL];
+    private byte[] tipus = new byte[MIDA_INICIAL];
+    private int nNodes;
+
+    /**
+     * @brief Registra un node nou
+     * @param node Node a registrar
+     * @pre No hi ha cap node registrat amb el mateix identificador
+     * @post El node té un ordinal assignat, que és el següent ordinal lliure
+     * @return L'ordinal assignat al node
+     */
+    public int registrar(Node node) {
+        //Pre: No hi ha cap node registrat amb el mateix identificador
+        //Post: El node té un ordinal assignat, que és el següent ordinal lliure
+        if (nNodes == nodes.length) {
+            int mida = nNodes * 2;
+            nodes = Arrays.copyOf(nodes, mida);
+            ids = Arrays.copyOf(ids, mida);
+            tipus = Arrays.copyOf(tipus, mida);
+        }
+        String id = node.id();
+        ordinals.put(id, nNodes);
+        nodes[nNodes] = node;
+        ids[nNodes] = id;
+        tipus[nNodes] = tipusDe(node);
+        return nNodes++;
+    }
+
+    /**
+     * @brief Registra de cop tots els nodes d'una xarxa, amb els ordinals 0..nodes.length-1
+     * @param nodes Node de cada ordinal
+     * @param tipus Etiqueta de tipus de cada ordinal
+     * @pre El registre és buit, els identificadors dels nodes són diferents i tipus[u] és l'etiqueta de nodes[u]
+     * @post Cada node té com a ordinal la seva posició a nodes
+     */
+    public void carregar(Node[] nodes, byte[] tipus) {
+        //Pre: El registre és buit, els identificadors són diferents i les etiquetes corresponen als nodes
+        //Post: Cada node té com a ordinal la seva posició a nodes
+        int mida = Math.max(MIDA_INICIAL, nodes.length);
+        this.nodes = Arrays.copyOf(nodes, mida);
+        this.tipus = Arrays.copyOf(tipus, mida);
+        this.ids = new String[mida];
+        for (int u = 0; u < nodes.length; u++) {
+            ids[u] = nodes[u].id();
+            ordinals.put(ids[u], u);
+        }
+        nNodes = nodes.length;
+    }
+
+    /**
+     * @brief Substitueix el node que té un ordinal per un altre amb el mateix identificador
+     * @param ordinal Ordinal del node a substituir
+     * @param node Node nou
+     * @pre ordinal està registrat i node.id() és l'identificador d'aquest ordinal
+     * @post L'ordinal apunta a node i l'etiqueta de tipus correspon al tipus de node
+     */
+    public void substituir(int ordinal, Node node) {
+        //Pre: ordinal està registrat i node.id() és l'identificador d'aquest ordinal
+        //Post: L'ordinal apunta a node i l'etiqueta de tipus correspon al tipus de node
+        nodes[ordinal] = node;
+        tipus[ordinal] = tipusDe(node);
+    }
+
+    /**
+     * @brief Retorna l'ordinal del node amb l'identificador donat
+     * @param id Identificador del node
+     * @pre ---
+     * @post Retorna l'ordinal del node, o NO_REGISTRAT si no n'hi ha cap amb aquest identificador
+     * @return L'ordinal del node o NO_REGISTRAT
+     */
+    public int ordinal(String id) {
+        //Pre: ---
+        //Post: Retorna l'ordinal del node, o NO_REGISTRAT si no n'hi ha cap amb aquest identificador
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? NO_REGISTRAT : ordinal;
+    }
+
+    /**
+     * @brief Indica si hi ha un node registrat amb l'identificador donat
+     * @param id Identificador del node
+     * @pre ---
+     * @post Retorna true si hi ha un node registrat amb aquest identificador
+     * @return True si l'identificador està registrat, false en cas contrari
+     */
+    public boolean conte(String id) {
+        //Pre: ---
+        //Post: Retorna true si hi ha un node registrat amb aquest identificador
+        return ordinals.containsKey(id);
+    }
+
+    /**
+     * @brief Retorna el node amb l'identificador donat
+     * @param id Identificador del node
+     * @pre ---
+     * @post Retorna el node registrat amb aquest identificador, o null si no n'hi ha cap
+     * @return El node o null
+     */
+    public Node node(String id) {
+        //Pre: ---
+        //Post: Retorna el node registrat amb aquest identificador, o null si no n'hi ha cap
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? null : nodes[ordinal];
+    }
+
+    /**
+     * @brief Retorna el node que té l'ordinal donat
+     * @param ordinal Ordinal del node
+     * @pre 0 <= ordinal < nNodes()
+     * @post Retorna el node amb aquest ordinal
+     * @return El node
+     */
+    public Node node(int ordinal) {
+        //Pre: 0 <= ordinal < nNodes()
+        //Post: Retorna el node amb aquest ordinal
+        return nodes[ordinal];
+    }
+
+    /**
+     * @brief Retorna l'identificador internat del node que té l'ordinal donat
+     * @param ordinal Ordinal del node
+     * @pre 0 <= ordinal < nNodes()
+     * @post Retorna la instància canònica de l'identificador
+     * @return L'identificador del node
+     */
+    public String id(int ordinal) {
+        //Pre: 0 <= ordinal < nNodes()
+        //Post: Retorna la instància canònica de l'identificador
+        return ids[ordinal];
+    }
+
+    /**
+     * @brief Retorna l'etiqueta de tipus del node que té l'ordinal donat
+     * @param ordinal Ordinal del node
+     * @pre 0 <= ordinal < nNodes()
+     * @post Retorna TERMINAL, CONNEXIO o ORIGEN
+     * @return L'etiqueta de tipus del node
+     */
+    public byte tipus(int ordinal) {
+        //Pre: 0 <= ordinal < nNodes()
+        //Post: Retorna TERMINAL, CONNEXIO o ORIGEN
+        return tipus[ordinal];
+    }
+
+    /**
+     * @brief Retorna el nombre d'ordinals assignats
+     * @pre ---
+     * @post Retorna el nombre d'ordinals assignats
+     * @return El nombre d'ordinals
+     */
+    public int nNodes() {
+        //Pre: ---
+        //Post: Retorna el nombre d'ordinals assignats
+        return nNodes;
+    }
+
+    /**
+     * @brief Calcula l'etiqueta de tipus d'un node
+     * @param node Node
+     * @pre node és un Terminal, una Connexio o un Origen
+     * @post Retorna l'etiqueta corresponent al tipus de node
+     * @return L'etiqueta de tipus
+     */
+    private static byte tipusDe(Node node) {
+        if (node instanceof Terminal) return TERMINAL;
+        if (node instanceof Origen) return ORIGEN;
+        return CONNEXIO;
+    }
+}
@@ -1,8 +1,5 @@
 //Jhon Alejandro Parraga Mogollon
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintStream;
 import java.util.*;
 import java.io.*;
 
@@ -15,112 +12,313 @@ import java.io.*;
  * @brief Aquí farem la simulació dels fitxers que be water entri per tal de poder fer el graph
  */
 public class SimuladorModeText {
-    private final Xarxa xarxa = new Xarxa();
+    private static final int VARIABLE = -1; //Aritat de les comandes que acaben quan en comença una altra
 
-    public void simular(String fitxerEntrada, String fitxerSortida) {
-        Set<String> commandStarters = new HashSet<>(Arrays.asList("origen", "connexio", "terminal", "connectar", "cicles", "arbre", "cabal minim", "tancar", "obrir", "backtrack", "situacio", "proximitat", "demanda", "cabal", "demandas", "cabales", "exces", "abonar", "max-flow", "cabal abonat", "dibuixar"));
+    //Nombre de línies d'arguments de cada comanda
+    private static final Map<String, Integer> ARITATS = Map.ofEntries(
+            Map.entry("origen", 2), Map.entry("connexio", 2), Map.entry("terminal", 3), Map.entry("connectar", 3),
+            Map.entry("cicles", 1), Map.entry("arbre", 1), Map.entry("cabal minim", 2), Map.entry("tancar", 1),
+            Map.entry("obrir", 1), Map.entry("backtrack", 1), Map.entry("situacio", VARIABLE),
+            Map.entry("proximitat", VARIABLE), Map.entry("propers", 2), Map.entry("radi", 2), Map.entry("demanda", 2),
+            Map.entry("cabal", 2), Map.entry("demandas", 1), Map.entry("cabales", 1), Map.entry("exces", VARIABLE),
+            Map.entry("abonar", 2), Map.entry("max-flow", 1), Map.entry("cabal abonat", 1), Map.entry("dibuixar", 1),
+            Map.entry("tall minim", 1), Map.entry("guardar", 1), Map.entry("carregar", 1));
+    private static final String[] COMANDES = ARITATS.keySet().toArray(new String[0]);
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(fitxerEntrada));
-             PrintStream out = new PrintStream(new FileOutputStream(fitxerSortida))) {
-            System.setOut(out); //Redirigir al fitxer de sortida
+    private Xarxa xarxa = new Xarxa();
+    private final LectorCoordenades lectorCoordenades = new LectorCoordenades();
+    private SortidaResultats sortida; //sortida de la simulació en curs
 
-            String line;
-            List<String> commandLines = new ArrayList<>();
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    commandLines.add(line);
-                    if (commandStarters.contains(line.split(" ")[0])) { // Asume que el comando es siempre la primera palabra
-                        if (commandLines.size() > 1) {
-                            procesarLinea(commandLines.subList(0, commandLines.size() - 1));
-                            commandLines.clear();
-                            commandLines.add(line);
-                        }
-                    }
-                }
+    private String[] linies = new String[8]; //línies de la comanda que s'està llegint, començant per la comanda
+    private int nLinies;
+    private Coordenades coordenadesLlegides; //coordenades de la línia de la comanda que s'ha guardat a null
+    private float nombreLlegit;              //nombre de la línia de la comanda que s'ha guardat a null
+
+    public void simular(String fitxerEntrada, String fitxerSortida) {
+        try (LectorMapejat lector = new LectorMapejat(fitxerEntrada)) {
+            SortidaResultats sortida = new SortidaResultats(fitxerSortida);
+            try {
+                simular(lector, sortida);
+            } finally {
+                sortida.close();
             }
-            if (!commandLines.isEmpty()) {
-                procesarLinea(commandLines); // Procesar el último comando
+            //La sortida no avisa de cada escriptura fallida: es comprova un cop tancada, quan ja s'ha buidat tot
+            if (sortida.erroni()) {
+                System.out.println("Error al escribir el archivo: " + fitxerSortida);
             }
         } catch (IOException e) {
             System.out.println("Error al leer el archivo: " + e.getMessage());
         }
     }
 
-    private void procesarLinea(List<String> lines) {
-        String command = lines.get(0);
+    /**
+     * @brief Executa totes les comandes d'un fitxer d'entrada.
+     * @param lector Lector del fitxer d'entrada, abans de la primera línia.
+     * @param sortida Sortida on s'escriuen els resultats de les comandes.
+     * @throws IOException Si no es pot llegir el fitxer d'entrada.
+     * @pre ---
+     * @post S'han executat les comandes del fitxer i els seus resultats són a sortida (que no es buida ni es tanca).
+     */
+    public void simular(LectorMapejat lector, SortidaResultats sortida) throws IOException {
+        //Les línies es llegeixen d'una en una: cada comanda s'executa tan bon punt en té tots els arguments, o quan
+        //en comença una altra si és de llista (o li falten arguments); les línies sobrants fins a la comanda següent
+        //s'ignoren. El fitxer es llegeix projectat a memòria, i les coordenades i els nombres de les comandes que
+        //defineixen la xarxa s'interpreten directament dels bytes, sense crear-ne el text
+        this.sortida = sortida;
+        boolean executada = false; //si la comanda actual ja s'ha executat perquè tenia tots els arguments
+        while (lector.seguentLinia()) {
+            if (lector.buida()) continue;
+            String comanda = comanda(lector);
+            if (comanda != null) { // Comandes d'una o dues paraules
+                if (nLinies > 0 && !executada) executar();
+                nLinies = 0;
+                executada = false;
+            } else if (executada) {
+                continue;
+            }
+            afegirLinia(lector, comanda);
+            Integer aritat = ARITATS.get(linies[0]);
+            if (aritat != null && aritat != VARIABLE && nLinies == aritat + 1) {
+                executar();
+                executada = true;
+            }
+        }
+        if (nLinies > 0 && !executada) {
+            executar(); // Procesar el último comando
+        }
+    }
+
+    /**
+     * @brief Diu si la línia actual comença una comanda.
+     * @param lector Lector situat en una línia no buida del fitxer d'entrada.
+     * @return La línia si, sense espais als extrems, és una comanda o si la seva primera paraula ho és; null si no
+     * comença cap comanda.
+     * @pre ---
+     * @post Si la línia és exactament una comanda, retorna la constant de la comanda sense crear cap text.
+     */
+    private static String comanda(LectorMapejat lector) {
+        char primer = lector.primerCaracter();
+        if (primer < 'a' || primer > 'z') return null; //Totes les comandes comencen amb una lletra minúscula
+        for (String comanda : COMANDES) {
+            if (lector.es(comanda)) return comanda;
+        }
+        for (String comanda : COMANDES) {
+            if (lector.comencaAmb(comanda)) return lector.text();
+        }
+        return null;
+    }
+
+    /**
+     * @brief Retorna una línia de la comanda que s'està processant.
+     * @param lines Línies de la comanda.
+     * @param n Nombre de línies de la comanda.
+     * @param i Posició de la línia.
+     * @return La línia i-èsima.
+     * @throws IndexOutOfBoundsException Si la comanda no té prou línies.
+     * @pre ---
+     * @post Retorna lines[i] si 0 <= i < n.
+     */
+    private static String argument(String[] lines, int n, int i) {
+        Objects.checkIndex(i, n);
+        return lines[i];
+    }
+
+    /**
+     * @brief Retorna les coordenades d'una línia de la comanda que s'està processant.
+     * @param lines Línies de la comanda.
+     * @param n Nombre de línies de la comanda.
+     * @param i Posició de la línia.
+     * @return Les coordenades de la línia i-èsima, o null si no són vàlides.
+     * @throws IndexOutOfBoundsException Si la comanda no té prou línies.
+     * @pre ---
+     * @post Si la línia ja s'ha llegit com a coordenades, les retorna; si no, interpreta el text.
+     */
+    private Coordenades coordenades(String[] lines, int n, int i) {
+        Objects.checkIndex(i, n);
+        return lines[i] == null ? coordenadesLlegides : parsearCoordenades(lines[i]);
+    }
+
+    /**
+     * @brief Retorna el nombre d'una línia de la comanda que s'està processant.
+     * @param lines Línies de la comanda.
+     * @param n Nombre de línies de la comanda.
+     * @param i Posició de la línia.
+     * @return El nombre de la línia i-èsima.
+     * @throws IndexOutOfBoundsException Si la comanda no té prou línies.
+     * @throws NumberFormatException Si la línia no és un nombre.
+     * @pre ---
+     * @post Si la línia ja s'ha llegit com a nombre, el retorna; si no, interpreta el text.
+     */
+    private float nombre(String[] lines, int n, int i) {
+        Objects.checkIndex(i, n);
+        return lines[i] == null ? nombreLlegit : Float.parseFloat(lines[i]);
+    }
+
+    /**
+     * @brief Afegeix la línia actual a la comanda que s'està llegint.
+     * @param lector Lector situat en una línia no buida del fitxer d'entrada.
+     * @param comanda La línia, si comença una comanda, o null.
+     * @pre ---
+     * @post La línia és l'última de la comanda. Si és les coordenades d'un origen, una connexió o un terminal, o el
+     * nombre d'un terminal o d'una connexió entre nodes, i té la forma habitual, se'n guarda el valor i la línia
+     * queda a null.
+     */
+    private void afegirLinia(LectorMapejat lector, String comanda) {
+        if (nLinies == linies.length) linies = Arrays.copyOf(linies, nLinies * 2);
+        String line;
+        if (nLinies == 0) {
+            line = comanda != null ? comanda : lector.text();
+        } else if (nLinies == 2 && esDefinicioNode(linies[0])) {
+            coordenadesLlegides = lector.coordenades();
+            line = coordenadesLlegides == null ? lector.text() : null;
+        } else if (nLinies == 3 && ("terminal".equals(linies[0]) || "connectar".equals(linies[0]))) {
+            nombreLlegit = lector.nombre();
+            line = Float.isNaN(nombreLlegit) ? lector.text() : null;
+        } else {
+            line = lector.text();
+        }
+        linies[nLinies++] = line;
+    }
+
+    /**
+     * @brief Diu si una comanda afegeix un node a la xarxa.
+     * @param command Primera línia de la comanda.
+     * @return Cert si la comanda és origen, connexio o terminal.
+     * @pre ---
+     * @post Retorna si la tercera línia de la comanda són coordenades.
+     */
+    private static boolean esDefinicioNode(String command) {
+        return "origen".equals(command) || "connexio".equals(command) || "terminal".equals(command);
+    }
+
+    /**
+     * @brief Executa la comanda que s'ha llegit.
+     * @pre nLinies > 0.
+     * @post S'ha processat la comanda i les seves línies ja no es guarden.
+     */
+    private void executar() {
+        procesarLinea(linies, nLinies);
+        Arrays.fill(linies, 0, nLinies, null);
+        nLinies = 0;
+    }
+
+    private void procesarLinea(String[] lines, int n) {
+        String command = lines[0];
         switch (command) {
             case "terminal":
-                if (lines.size() < 4) {
-                    System.out.println("Formato incorrecto para 'terminal'");
+                if (n < 4) {
+                    sortida.linia("Formato incorrecto para 'terminal'");
                     break;
                 }
-                afegirTerminal(lines.get(1), lines.get(2), Float.parseFloat(lines.get(3)));
+                float demanda = nombre(lines, n, 3);
+                afegirTerminal(argument(lines, n, 1), coordenades(lines, n, 2), demanda);
                 break;
             case "origen":
-                afegirOrigen(lines.get(1), lines.get(2));
+                afegirOrigen(argument(lines, n, 1), coordenades(lines, n, 2));
                 break;
             case "connexio":
-                afegirConnexio(lines.get(1), lines.get(2));
+                afegirConnexio(argument(lines, n, 1), coordenades(lines, n, 2));
                 break;
             case "connectar":
-                connectarNodes(lines.get(1), lines.get(2), Float.parseFloat(lines.get(3)));
+                connectarNodes(argument(lines, n, 1), argument(lines, n, 2), nombre(lines, n, 3));
                 break;
             case "cicles":
-                comprovarCicles(lines.get(1));
+                comprovarCicles(argument(lines, n, 1));
                 break;
             case "arbre":
-                comprovarArbre(lines.get(1));
+                comprovarArbre(argument(lines, n, 1));
                 break;
             case "cabal minim":
-                float percentatge = Float.parseFloat(lines.get(2).replace("%", ""));
-                comprovarCabalMinim(lines.get(1), percentatge);
+                float percentatge = Float.parseFloat(argument(lines, n, 2).replace("%", ""));
+                comprovarCabalMinim(argument(lines, n, 1), percentatge);
                 break;
             case "tancar":
-                tancarAixeta(lines.get(1));
+                tancarAixeta(argument(lines, n, 1));
                 break;
             case "obrir":
-                obrirAixeta(lines.get(1));
+                obrirAixeta(argument(lines, n, 1));
                 break;
             case "backtrack":
-                backtrack(Integer.parseInt(lines.get(1)));
+                backtrack(Integer.parseInt(argument(lines, n, 1)));
                 break;
             case "situacio":
-                aixetesTancar(lines);
+                aixetesTancar(lines, n);
                 break;
             case "demandas":
-                ordeDemanda(lines.get(1));
+                ordeDemanda(argument(lines, n, 1));
                 break;
             case "cabales":
-                ordeCabal(lines.get(1));
+                ordeCabal(argument(lines, n, 1));
                 break;
             case "proximitat":
-                comprovarProximitat(lines);
+                comprovarProximitat(lines, n);
+                break;
+            case "propers":
+                nodesPropers(argument(lines, n, 1), Integer.parseInt(argument(lines, n, 2)));
+                break;
+            case "radi":
+                nodesDinsRadi(argument(lines, n, 1), Double.parseDouble(argument(lines, n, 2)));
                 break;
             case "demanda":
-                demanda(lines.get(1), Float.parseFloat(lines.get(2)));
+                demanda(argument(lines, n, 1), Float.parseFloat(argument(lines, n, 2)));
                 break;
             case "cabal":
-                cabals(lines.get(1), Float.parseFloat(lines.get(2)));
+                cabals(argument(lines, n, 1), Float.parseFloat(argument(lines, n, 2)));
                 break;
             case "exces":
-                excesCabal(lines);
+                excesCabal(lines, n);
                 break;
             case "abonar":
-                abonarClient(lines.get(1), lines.get(2));
+                abonarClient(argument(lines, n, 1), argument(lines, n, 2));
                 break;
             case "max-flow":
-                fluxMaxim(lines.get(1));
+                fluxMaxim(argument(lines, n, 1));
+                break;
+            case "tall minim":
+                tallMinim(argument(lines, n, 1));
                 break;
             case "cabal abonat":
-                System.out.println("cabal abonat");
-                float cabal = xarxa.cabalAbonat(lines.get(1));
-                System.out.println(cabal);
+                sortida.linia("cabal abonat");
+                float cabal = xarxa.cabalAbonat(argument(lines, n, 1));
+                sortida.linia(cabal);
                 break;
             case "dibuixar":
-                dibuixarXarxa(lines.get(1));
+                dibuixarXarxa(argument(lines, n, 1));
+                break;
+            case "guardar":
+                guardarXarxa(argument(lines, n, 1));
+                break;
+            case "carregar":
+                carregarXarxa(argument(lines, n, 1));
                 break;
             default:
-                System.out.println("Comanda desconeguda: " + command);
+                sortida.linia("Comanda desconeguda: " + command);
+        }
+    }
+    /**
+     * @brief Guarda la xarxa en una instantània binària.
+     * @param fitxer Camí del fitxer de la instantània.
+     * @pre ---
+     * @post La instantània és al fitxer, o s'imprimeix per què no s'ha pogut guardar.
+     */
+    private void guardarXarxa(String fitxer) {
+        try {
+            xarxa.guardar(fitxer);
+        } catch (IOException e) {
+            sortida.linia("Error al guardar la xarxa: " + e.getMessage());
+        }
+    }
+    /**
+     * @brief Substitueix la xarxa per la d'una instantània binària.
+     * @param fitxer Camí del fitxer de la instantània.
+     * @pre ---
+     * @post La xarxa és la de la instantània, o s'imprimeix per què no s'ha pogut carregar i la xarxa no canvia.
+     */
+    private void carregarXarxa(String fitxer) {
+        try {
+            xarxa = Xarxa.carregar(fitxer);
+        } catch (IOException e) {
+            sortida.linia("Error al carregar la xarxa: " + e.getMessage());
         }
     }
     /**
@@ -128,40 +326,26 @@ public class SimuladorModeText {
      * @param coordenadaTexto Cadena de texto con les coordenades en format "graus:minuts:segonsDir,graus:minuts:segonsDir".
      * @return Un objecte Coordenades amb les coordenades parseades, o null si hi ha un error en el parseig.
      * @pre ---
-     * @post Retorna un objecte Coordenades amb les coordenades parseades o null si hi ha un error.
+     * @post Retorna un objecte Coordenades amb les coordenades parseades o null si hi ha un error, i en aquest cas
+     * imprimeix la columna del primer caràcter incorrecte i el motiu.
      */
     private Coordenades parsearCoordenades(String coordenadaTexto) {
-        try {
-            String[] latLon = coordenadaTexto.split(",");
-            String[] lat = latLon[0].split(":");
-            String[] lon = latLon[1].split(":");
-
-            int grausLat = Integer.parseInt(lat[0]);
-            int minutsLat = Integer.parseInt(lat[1]);
-            float segonsLat = Float.parseFloat(lat[2].substring(0, lat[2].length() - 1));
-            char dirLat = lat[2].charAt(lat[2].length() - 1);
-
-            int grausLon = Integer.parseInt(lon[0]);
-            int minutsLon = Integer.parseInt(lon[1]);
-            float segonsLon = Float.parseFloat(lon[2].substring(0, lon[2].length() - 1));
-            char dirLon = lon[2].charAt(lon[2].length() - 1);
-
-            return new Coordenades(grausLat, minutsLat, segonsLat, dirLat, grausLon, minutsLon, segonsLon, dirLon);
-        } catch (Exception e) {
-            System.out.println("Error parsing coordinates: " + coordenadaTexto);
-            return null;
+        if (lectorCoordenades.llegir(coordenadaTexto)) {
+            return lectorCoordenades.coordenades();
         }
+        sortida.linia("Error parsing coordinates: " + coordenadaTexto + " (columna "
+                + (lectorCoordenades.posicioError() + 1) + ": " + lectorCoordenades.error() + ")");
+        return null;
     }
     /**
      * @brief Afegeix un terminal a la xarxa.
      * @param id Identificador del terminal.
-     * @param coordenadesTexto Coordenades del terminal en format de text.
+     * @param coordenades Coordenades del terminal, o null si no eren vàlides.
      * @param demanda Demanda del terminal.
      * @pre ---
      * @post Afegeix un terminal a la xarxa amb les coordenades i demanda especificades.
      */
-    private void afegirTerminal(String id, String coordenadesTexto, float demanda) {
-        Coordenades coordenades = parsearCoordenades(coordenadesTexto);
+    private void afegirTerminal(String id, Coordenades coordenades, float demanda) {
         if (coordenades != null) {
             Terminal terminal = new Terminal(id, coordenades, demanda);
             xarxa.afegir(terminal);
@@ -170,12 +354,11 @@ public class SimuladorModeText {
     /**
      * @brief Afegeix un origen a la xarxa.
      * @param id Identificador de l'origen.
-     * @param coordenadesTexto Coordenades de l'origen en format de text.
+     * @param coordenades Coordenades de l'origen, o null si no eren vàlides.
      * @pre ---
      * @post Afegeix un origen a la xarxa amb les coordenades especificades.
      */
-    private void afegirOrigen(String id, String coordenadesTexto) {
-        Coordenades coordenades = parsearCoordenades(coordenadesTexto);
+    private void afegirOrigen(String id, Coordenades coordenades) {
         if (coordenades != null) {
             Origen origen = new Origen(id, coordenades);
             xarxa.afegir(origen);
@@ -184,12 +367,11 @@ public class SimuladorModeText {
     /**
      * @brief Afegeix una connexió a la xarxa.
      * @param id Identificador de la connexió.
-     * @param coordenadesTexto Coordenades de la connexió en format de text.
+     * @param coordenades Coordenades de la connexió, o null si no eren vàlides.
      * @pre ---
      * @post Afegeix una connexió a la xarxa amb les coordenades especificades.
      */
-    private void afegirConnexio(String id, String coordenadesTexto) {
-        Coordenades coordenades = parsearCoordenades(coordenadesTexto);
+    private void afegirConnexio(String id, Coordenades coordenades) {
         if (coordenades != null) {
             Connexio connexio = new Connexio(id, coordenades);
             xarxa.afegir(connexio);
@@ -209,7 +391,7 @@ public class SimuladorModeText {
         if (node1 != null && node2 != null) {
             xarxa.connectarAmbCanonada(node1, node2, capacidad);
         } else {
-            System.out.println("Uno de los nodos no existe: " + id1 + " or " + id2);
+            sortida.linia("Uno de los nodos no existe: " + id1 + " or " + id2);
         }
     }
     /**
@@ -223,12 +405,12 @@ public class SimuladorModeText {
         Origen nodeOrigen = node instanceof Origen ? (Origen) node : null;
         if (nodeOrigen != null) {
             if (GestorXarxes.teCicles(xarxa,nodeOrigen)) {
-                System.out.println(id + " té cicles");
+                sortida.linia(id + " té cicles");
             } else {
-                System.out.println(id +" no té cicles");
+                sortida.linia(id +" no té cicles");
             }
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -242,12 +424,12 @@ public class SimuladorModeText {
         Origen nodeOrigen = node instanceof Origen ? (Origen) node : null;
         if (nodeOrigen != null) {
             if (GestorXarxes.esArbre(xarxa,nodeOrigen)) {
-                System.out.println(id + " és un arbre");
+                sortida.linia(id + " és un arbre");
             } else {
-                System.out.println(id + " no és un arbre");
+                sortida.linia(id + " no és un arbre");
             }
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -262,10 +444,10 @@ public class SimuladorModeText {
         Origen nodeOrigen = node instanceof Origen ? (Origen) node : null;
         if (nodeOrigen != null) {
             float cabalMinim = GestorXarxes.cabalMinim(xarxa, nodeOrigen,percentatge);
-            System.out.println("Cabal mínim");
-            System.out.println(cabalMinim);
+            sortida.linia("Cabal mínim");
+            sortida.linia(cabalMinim);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -279,7 +461,7 @@ public class SimuladorModeText {
         if (node != null) {
             xarxa.tancarAixeta(node);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -293,7 +475,7 @@ public class SimuladorModeText {
         if (node != null) {
             xarxa.obrirAixeta(node);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -307,23 +489,25 @@ public class SimuladorModeText {
     }
     /**
      * @brief Determina les aixetes que s'han de tancar per a complir amb les condicions donades.
-     * @param lines Llista de línies amb els identificadors dels terminals i els seus estats d'aigua.
+     * @param lines Línies de la comanda, amb els identificadors dels terminals i els seus estats d'aigua.
+     * @param n Nombre de línies de la comanda.
      * @pre ---
      * @post Imprimeix els nodes on s'han de tancar les aixetes.
      */
-    private void aixetesTancar(List<String> lines) {
-        HashMap<Terminal, Boolean> aiguaArriba = new HashMap<>();
-        for (int i = 1; i < lines.size(); i++){
-            String[] parts = lines.get(i).split(" ");
-            String terminalId = parts[0];
-            boolean estat = parts[1].equals("SI");
+    private void aixetesTancar(String[] lines, int n) {
+        //L'ordre dels terminals decideix quina aixeta es tanca: es conserva el de l'entrada
+        Map<Terminal, Boolean> aiguaArriba = new LinkedHashMap<>();
+        for (int i = 1; i < n; i++){
+            int espai = lines[i].indexOf(' ');
+            String terminalId = lines[i].substring(0, espai);
+            boolean estat = lines[i].startsWith("SI", espai + 1) && (lines[i].length() == espai + 3 || lines[i].charAt(espai + 3) == ' ');
             Terminal terminal = (Terminal) xarxa.node(terminalId);
             aiguaArriba.put(terminal, estat);
         }
         Set<Node> nodes = GestorXarxes.aixetesTancar(xarxa, aiguaArriba);
-        System.out.println("tancar");
+        sortida.linia("tancar");
         for (Node node : nodes) {
-            System.out.println(node.id());
+            sortida.linia(node.id());
         }
     }
     /**
@@ -335,7 +519,7 @@ public class SimuladorModeText {
     private void ordeDemanda(String IdClient){
         Node node = xarxa.node(IdClient);
         float demanda = xarxa.demanda(node);
-        System.out.println(demanda);
+        sortida.linia(demanda);
     }
     /**
      * @brief Retorna el cabal d'un origen.
@@ -346,27 +530,59 @@ public class SimuladorModeText {
     private void ordeCabal(String IdOrigen){
         Node node = xarxa.node(IdOrigen);
         float cabal = xarxa.cabal(node);
-        System.out.println(cabal);
+        sortida.linia(cabal);
     }
     /**
      * @brief Comprova la proximitat de nodes a unes coordenades especificades.
-     * @param lines Llista de línies amb les coordenades i els identificadors dels nodes.
+     * @param lines Línies de la comanda, amb les coordenades i els identificadors dels nodes.
+     * @param n Nombre de línies de la comanda.
      * @pre ---
-     * @post Imprimeix els nodes ordenats per proximitat a les coordenades especificades.
+     * @post Imprimeix els nodes ordenats per proximitat a les coordenades especificades. Si les coordenades no són vàlides, només escriu l'error.
      */
-    private void comprovarProximitat(List<String> lines){
-        Coordenades coordenades = parsearCoordenades(lines.get(1));
+    private void comprovarProximitat(String[] lines, int n){
+        Coordenades coordenades = parsearCoordenades(argument(lines, n, 1));
+        if (coordenades == null) return; //l'error ja s'ha escrit i la comanda no es fa
         Set<Node> nodes = new HashSet<>();
-        for (int i = 2; i < lines.size(); i++){
-            Node node = xarxa.node(lines.get(i));
+        for (int i = 2; i < n; i++){
+            Node node = xarxa.node(lines[i]);
             if (node != null){
                 nodes.add(node);
             }
         }
         List<Node> resultatNodes = GestorXarxes.nodesOrdenats(coordenades, nodes);
-        System.out.println("proximitat");
+        sortida.linia("proximitat");
         for (Node node : resultatNodes){
-            System.out.println(node.id());
+            sortida.linia(node.id());
+        }
+    }
+    /**
+     * @brief Mostra els nodes de la xarxa més propers a unes coordenades.
+     * @param coordenadaTexto Coordenades de referència.
+     * @param k Nombre de nodes a mostrar.
+     * @pre ---
+     * @post Imprimeix els k nodes de tota la xarxa més propers a les coordenades, ordenats per proximitat. Si les coordenades no són vàlides, només escriu l'error.
+     */
+    private void nodesPropers(String coordenadaTexto, int k){
+        Coordenades coordenades = parsearCoordenades(coordenadaTexto);
+        if (coordenades == null) return; //l'error ja s'ha escrit i la comanda no es fa
+        sortida.linia("propers");
+        for (Node node : GestorXarxes.nodesPropers(xarxa, coordenades, k)){
+            sortida.linia(node.id());
+        }
+    }
+    /**
+     * @brief Mostra els nodes de la xarxa que hi ha dins d'un radi al voltant d'unes coordenades.
+     * @param coordenadaTexto Coordenades de referència.
+     * @param radi Radi en km.
+     * @pre ---
+     * @post Imprimeix els nodes de tota la xarxa a distància radi o menys de les coordenades, ordenats per proximitat. Si les coordenades no són vàlides, només escriu l'error.
+     */
+    private void nodesDinsRadi(String coordenadaTexto, double radi){
+        Coordenades coordenades = parsearCoordenades(coordenadaTexto);
+        if (coordenades == null) return; //l'error ja s'ha escrit i la comanda no es fa
+        sortida.linia("radi");
+        for (Node node : GestorXarxes.nodesDinsRadi(xarxa, coordenades, radi)){
+            sortida.linia(node.id());
         }
     }
     /**
@@ -382,7 +598,7 @@ public class SimuladorModeText {
         if (nodeTerminal != null){
             xarxa.establirDemanda(nodeTerminal, demanda);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -398,27 +614,30 @@ public class SimuladorModeText {
         if (nodeOrigen != null){
             xarxa.establirCabal(nodeOrigen, cabal);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
      * @brief Determina les canonades amb excés de cabal.
-     * @param lines Llista d'identificadors de les canonades.
+     * @param lines Línies de la comanda, amb els identificadors de les canonades.
+     * @param n Nombre de línies de la comanda.
      * @pre ---
      * @post Imprimeix les canonades amb excés de cabal.
      */
-    private void excesCabal(List<String> lines){
+    private void excesCabal(String[] lines, int n){
         Set<Canonada> canonadas = new HashSet<>();
-        for (int i = 1; i < lines.size(); i++){
-            Canonada canonada = xarxa.retornarCapacitat(lines.get(i));
+        for (int i = 1; i < n; i++){
+            Canonada canonada = xarxa.retornarCapacitat(lines[i]);
             if (canonada != null) {
                 canonadas.add(canonada);
             }
         }
         Set<Canonada> excesoCanonadas = GestorXarxes.excesCabal(xarxa, canonadas);
-        System.out.println("exces cabal");
+        sortida.linia("exces cabal");
         for (Canonada canonada : excesoCanonadas){
-            System.out.println(canonada.node1().id() + "-" + canonada.node2().id());
+            sortida.escriure(canonada.node1().id());
+            sortida.escriure("-");
+            sortida.linia(canonada.node2().id());
         }
     }
     /**
@@ -434,7 +653,7 @@ public class SimuladorModeText {
         if (nodeTerminal != null){
             xarxa.abonar(id,nodeTerminal);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
     /**
@@ -447,13 +666,48 @@ public class SimuladorModeText {
         Node node = xarxa.node(id);
         GestorXarxes.fluxMaxim(xarxa,(Origen)node);
     }
+    /**
+     * @brief Mostra el tall mínim del flux màxim d'un node origen.
+     * @param id Identificador del node origen.
+     * @pre ---
+     * @post Imprimeix el flux màxim, les canonades plenes que el limiten i els nodes del costat dels orígens,
+     * ordenats per identificador.
+     */
+    private void tallMinim(String id){
+        Node node = xarxa.node(id);
+        Origen nodeOrigen = node instanceof Origen ? (Origen) node : null;
+        if (nodeOrigen == null){
+            sortida.linia("El node no existeix: " + id);
+            return;
+        }
+        List<String> canonades = new ArrayList<>();
+        for (Canonada canonada : GestorXarxes.tallMinim(xarxa, nodeOrigen)){
+            canonades.add(canonada.node1().id() + "-" + canonada.node2().id());
+        }
+        List<String> costat = new ArrayList<>();
+        for (Node n : GestorXarxes.costatOrigen(xarxa, nodeOrigen)){
+            costat.add(n.id());
+        }
+        Collections.sort(canonades);
+        Collections.sort(costat);
+        sortida.linia("tall minim");
+        sortida.linia(GestorXarxes.valorFluxMaxim(xarxa, nodeOrigen));
+        sortida.linia("canonades");
+        for (String canonada : canonades){
+            sortida.linia(canonada);
+        }
+        sortida.linia("costat origen");
+        for (String n : costat){
+            sortida.linia(n);
+        }
+    }
     private void dibuixarXarxa(String id){
         Node node = xarxa.node(id);
         Origen nodeOrigen = node instanceof Origen ? (Origen) node : null;
         if (node != null){
             xarxa.dibuixar(nodeOrigen);
         } else {
-            System.out.println("El node no existeix: " + id);
+            sortida.linia("El node no existeix: " + id);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,293 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @file SortidaResultats.java
+ * @brief Fitxer que conté la classe SortidaResultats
+ */
+
+/**
+ * @class SortidaResultats
+ * @brief Fitxer de resultats amb un buffer gran, que s'escriu sencer al canal del fitxer quan s'omple o quan es
+ * demana
+ *
+ * El text es codifica en UTF-8 directament al buffer, caràcter a caràcter, i els salts de línia són els del sistema:
+ * el fitxer queda igual que amb PrintStream.println, però sense buidar el buffer a cada línia ni crear objectes per
+ * escriure. Els float s'escriuen amb el mateix text que Float.toString; els que tenen valor absolut entre 10^-3 i
+ * 10^7 (la notació sense exponent) es formaten directament al buffer, i la resta passen per Float.toString.
+ *
+ * Si el fitxer no es pot escriure, l'error es guarda i no es torna a intentar, com fa PrintStream: el programa no
+ * s'atura per la sortida, i erroni() diu si s'ha perdut res.
+ */
+public class SortidaResultats implements AutoCloseable {
+    //Descripció general: Escriptura amb buffer dels resultats de la simulació
+
+    private static final int MIDA_BUFFER = 1 << 20;
+    private static final int MAX_XIFRES_FLOAT = 24; //xifres, signe i punt d'un float sense exponent
+    private static final double[] POTENCIES = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12};
+    private static final float MINIM_PLA = 1e-3f; //Float.toString escriu sense exponent a partir d'aquí
+    private static final float MAXIM_PLA = 1e7f;  //i fins aquí (exclòs)
+    private static final byte[] SALT_LINIA = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final FileOutputStream fitxer;
+    private final FileChannel canal;
+    private final byte[] bytes = new byte[MIDA_BUFFER];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int posicio;
+    private boolean erroni;
+
+    /**
+     * @brief Constructor de la classe SortidaResultats
+     * @param nomFitxer Camí del fitxer de resultats
+     * @throws IOException Si el fitxer no es pot crear (amb el mateix missatge que FileOutputStream)
+     * @pre ---
+     * @post El fitxer existeix i és buit
+     */
+    public SortidaResultats(String nomFitxer) throws IOException {
+        //Pre: ---
+        //Post: El fitxer existeix i és buit
+        this.fitxer = new FileOutputStream(nomFitxer);
+        this.canal = fitxer.getChannel();
+    }
+
+    /**
+     * @brief Escriu un text
+     * @param text Text a escriure (null s'escriu "null")
+     * @pre ---
+     * @post El text codificat en UTF-8 és al final de la sortida (els caràcters substituts desaparellats s'escriuen
+     * '?', com fa PrintStream)
+     */
+    public void escriure(String text) {
+        //Pre: ---
+        //Post: El text és al final de la sortida
+        if (text == null) text = "null";
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                reservar(1);
+                bytes[posicio++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                escriureCodi(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                escriureCodi(Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+    }
+
+    /**
+     * @brief Escriu un float
+     * @param valor Valor a escriure
+     * @pre ---
+     * @post El text de Float.toString(valor) és al final de la sortida
+     */
+    public void escriure(float valor) {
+        //Pre: ---
+        //Post: El text del valor és al final de la sortida
+        reservar(MAX_XIFRES_FLOAT);
+        int fi = formatar(valor, bytes, posicio);
+        if (fi < 0) {
+            escriure(Float.toString(valor));
+        } else {
+            posicio = fi;
+        }
+    }
+
+    /**
+     * @brief Acaba la línia actual
+     * @pre ---
+     * @post El salt de línia del sistema és al final de la sortida
+     */
+    public void linia() {
+        //Pre: ---
+        //Post: El salt de línia és al final de la sortida
+        reservar(SALT_LINIA.length);
+        for (byte b : SALT_LINIA) {
+            bytes[posicio++] = b;
+        }
+    }
+
+    /**
+     * @brief Escriu un text i acaba la línia
+     * @param text Text a escriure
+     * @pre ---
+     * @post Igual que PrintStream.println(text)
+     */
+    public void linia(String text) {
+        //Pre: ---
+        //Post: El text i un salt de línia són al final de la sortida
+        escriure(text);
+        linia();
+    }
+
+    /**
+     * @brief Escriu un float i acaba la línia
+     * @param valor Valor a escriure
+     * @pre ---
+     * @post Igual que PrintStream.println(valor)
+     */
+    public void linia(float valor) {
+        //Pre: ---
+        //Post: El valor i un salt de línia són al final de la sortida
+        escriure(valor);
+        linia();
+    }
+
+    /**
+     * @brief Escriu al fitxer tot el que hi ha al buffer
+     * @pre ---
+     * @post El buffer és buit i el seu contingut és al fitxer (si no hi ha hagut cap error d'escriptura)
+     */
+    public void buidar() {
+        //Pre: ---
+        //Post: El contingut del buffer és al fitxer
+        if (!erroni && posicio > 0) {
+            buffer.clear().limit(posicio);
+            try {
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+            } catch (IOException e) {
+                erroni = true;
+            }
+        }
+        posicio = 0;
+    }
+
+    /**
+     * @brief Diu si s'ha perdut alguna escriptura
+     * @pre ---
+     * @post Retorna si alguna escriptura al fitxer ha fallat
+     * @return True si hi ha hagut algun error d'escriptura, false en cas contrari
+     */
+    public boolean erroni() {
+        //Pre: ---
+        //Post: Retorna si hi ha hagut algun error d'escriptura
+        return erroni;
+    }
+
+    /**
+     * @brief Buida el buffer i tanca el fitxer
+     * @pre ---
+     * @post Tot el que s'ha escrit és al fitxer i el fitxer està tancat
+     */
+    @Override
+    public void close() {
+        //Pre: ---
+        //Post: Tot el que s'ha escrit és al fitxer i el fitxer està tancat
+        buidar();
+        try {
+            fitxer.close();
+        } catch (IOException e) {
+            erroni = true;
+        }
+    }
+
+    /**
+     * @brief Formata un float amb el mateix text que Float.toString, si és sense exponent
+     * @param valor Valor a formatar
+     * @param desti Vector on s'escriu el text, en ASCII
+     * @param desde Posició de desti on comença el text
+     * @pre desti té com a mínim MAX_XIFRES_FLOAT posicions a partir de desde
+     * @post Si el valor és 0 o té valor absolut a [10^-3, 10^7), escriu el text de Float.toString(valor) a desti i
+     * retorna la posició següent; si no, retorna -1 sense haver escrit res
+     * @return La posició següent al text, o -1
+     */
+    public static int formatar(float valor, byte[] desti, int desde) {
+        //Pre: desti té prou posicions a partir de desde
+        //Post: Escriu el text de Float.toString(valor) i retorna la posició següent, o retorna -1
+        boolean negatiu = Float.floatToRawIntBits(valor) < 0;
+        float absolut = Math.abs(valor);
+        long mantissa = -1;
+        int decimals = 1;
+        if (absolut == 0) {
+            mantissa = 0;
+        } else {
+            if (!(absolut >= MINIM_PLA && absolut < MAXIM_PLA)) return -1;
+            // Interval de decimals que s'arrodoneixen a absolut: fins a la meitat de la distància als floats veïns,
+            // amb els extrems inclosos si la mantissa binària és parella. Els extrems tenen 25 bits significatius
+            boolean extremsInclosos = (Float.floatToRawIntBits(absolut) & 1) == 0;
+            double inferior = ((double) absolut + Math.nextDown(absolut)) / 2;
+            double superior = ((double) absolut + Math.nextUp(absolut)) / 2;
+            // Amb k decimals, els únics candidats són els dos decimals que envolten el valor: Float.toString tria la
+            // k més petita per a la qual algun és dins l'interval, i el més proper (o el parell si n'hi ha dos)
+            for (decimals = 1; decimals < POTENCIES.length; decimals++) {
+                double potencia = POTENCIES[decimals];
+                double escalat = absolut * potencia; //exacte: 24 bits per 5^k (k <= 12) caben en un double
+                double minim = inferior * potencia;  //exactes: 25 bits per 5^k
+                double maxim = superior * potencia;
+                long sota = (long) escalat;
+                long sobre = sota == escalat ? sota : sota + 1;
+                boolean sotaVal = sota > minim || (extremsInclosos && sota == minim);
+                boolean sobreVal = sobre < maxim || (extremsInclosos && sobre == maxim);
+                if (sotaVal && sobreVal) {
+                    double distanciaSota = escalat - sota;
+                    double distanciaSobre = sobre - escalat;
+                    mantissa = distanciaSota < distanciaSobre || (distanciaSota == distanciaSobre && (sota & 1) == 0) ? sota : sobre;
+                } else if (sotaVal) {
+                    mantissa = sota;
+                } else if (sobreVal) {
+                    mantissa = sobre;
+                }
+                if (mantissa >= 0) break;
+            }
+            if (mantissa < 0) return -1;
+        }
+
+        // Xifres de la mantissa de dreta a esquerra, amb el punt decimals posicions des de la dreta
+        int xifres = 1;
+        for (long r = mantissa / 10; r > 0; r /= 10) {
+            xifres++;
+        }
+        xifres = Math.max(xifres, decimals + 1);
+        long resta = mantissa;
+        int posicio = desde;
+        if (negatiu) desti[posicio++] = '-';
+        int fi = posicio + xifres + 1;
+        int p = fi - 1;
+        for (int i = 0; i < xifres; i++) {
+            if (i == decimals) desti[p--] = '.';
+            desti[p--] = (byte) ('0' + resta % 10);
+            resta /= 10;
+        }
+        return fi;
+    }
+
+    /**
+     * @brief Escriu un punt de codi en UTF-8
+     * @param codi Punt de codi
+     * @pre 0 <= codi <= 0x10FFFF i no és un substitut
+     * @post La codificació UTF-8 de codi és al final de la sortida
+     */
+    private void escriureCodi(int codi) {
+        reservar(4);
+        if (codi < 0x80) {
+            bytes[posicio++] = (byte) codi;
+        } else if (codi < 0x800) {
+            bytes[posicio++] = (byte) (0xC0 | (codi >> 6));
+            bytes[posicio++] = (byte) (0x80 | (codi & 0x3F));
+        } else if (codi < 0x10000) {
+            bytes[posicio++] = (byte) (0xE0 | (codi >> 12));
+            bytes[posicio++] = (byte) (0x80 | ((codi >> 6) & 0x3F));
+            bytes[posicio++] = (byte) (0x80 | (codi & 0x3F));
+        } else {
+            bytes[posicio++] = (byte) (0xF0 | (codi >> 18));
+            bytes[posicio++] = (byte) (0x80 | ((codi >> 12) & 0x3F));
+            bytes[posicio++] = (byte) (0x80 | ((codi >> 6) & 0x3F));
+            bytes[posicio++] = (byte) (0x80 | (codi & 0x3F));
+        }
+    }
+
+    /**
+     * @brief Assegura espai al buffer
+     * @param n Bytes que es volen escriure
+     * @pre n <= MIDA_BUFFER
+     * @post Hi ha com a mínim n posicions lliures al buffer
+     */
+    private void reservar(int n) {
+        if (posicio + n > bytes.length) buidar();
+    }
+}
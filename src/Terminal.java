@@ -1,5 +1,6 @@
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Collections;
 /**
  * @file Terminal.java
  * @brief Fitxer que conté la classe Terminal
@@ -97,4 +98,16 @@ public class Terminal extends Node {
     public boolean abonat(String abonat){
         return abonats.contains(abonat);
     }
-}
\ No newline at end of file
+
+    /**
+     * @brief Retorna els abonats del terminal
+     * @pre ---
+     * @post Retorna una vista no modificable del conjunt d'abonats del terminal
+     * @return Els abonats del terminal
+     */
+    public Set<String> abonats(){
+        //Pre: ---
+        //Post: Retorna una vista no modificable del conjunt d'abonats
+        return Collections.unmodifiableSet(abonats);
+    }
+}
@@ -0,0 +1,487 @@
+import java.util.Arrays;
+
+/**
+ * @file Topologia.java
+ * @brief Fitxer que conté la classe Topologia
+ */
+
+/**
+ * @class Topologia
+ * @brief Topologia compacta d'una xarxa de distribució d'aigua (ordinals de node i canonades en vectors primitius)
+ *
+ * Els nodes s'identifiquen per un ordinal dens (0..nNodes-1) i les canonades per un índex dens (0..nCanonades-1).
+ * Les canonades es guarden en l'ordre d'inserció i també en format CSR: per a cada node, un rang [inici, fi) dins
+ * dels vectors de sortides i d'entrades, en ordre d'inserció. Cada rang té marge per créixer; quan una canonada nova
+ * no hi cap, el rang es trasllada al final dels vectors amb el doble de marge i el forat que deixa només es recupera
+ * quan els forats ocupen més que les canonades. Així afegir una canonada costa O(1) amortitzat i les consultes no
+ * esperen mai cap reconstrucció, encara que s'alternin amb les insercions.
+ */
+public class Topologia {
+    //Descripció general: Topologia compacta d'una xarxa de distribució d'aigua
+
+    private static final int MIDA_INICIAL = 16;
+
+    private int nNodes;
+
+    private int nCanonades;
+    private int[] origenCanonada;
+    private int[] destiCanonada;
+    private float[] capacitatCanonada;
+
+    private final Adjacencia sortides = new Adjacencia(); //veí de cada sortida: el node destí
+    private final Adjacencia entrades = new Adjacencia(); //veí de cada entrada: el node origen
+    private float[] sumaEntrades = new float[MIDA_INICIAL];      //suma de capacitats de les entrades de cada node
+    private boolean[] entradesIguals = new boolean[MIDA_INICIAL]; //si totes les entrades de cada node tenen la mateixa capacitat
+
+    /**
+     * @brief Constructor de la classe Topologia
+     * @pre ---
+     * @post S'ha creat una topologia buida
+     */
+    public Topologia() {
+        //Pre: ---
+        //Post: S'ha creat una topologia buida
+        this.origenCanonada = new int[MIDA_INICIAL];
+        this.destiCanonada = new int[MIDA_INICIAL];
+        this.capacitatCanonada = new float[MIDA_INICIAL];
+    }
+
+    /**
+     * @brief Afegeix un node nou a la topologia
+     * @pre ---
+     * @post S'ha afegit un node sense canonades i se n'ha retornat l'ordinal
+     * @return L'ordinal del node afegit
+     */
+    public int afegirNode() {
+        //Pre: ---
+        //Post: S'ha afegit un node sense canonades i se n'ha retornat l'ordinal
+        if (nNodes == sumaEntrades.length) {
+            sumaEntrades = Arrays.copyOf(sumaEntrades, nNodes * 2);
+            entradesIguals = Arrays.copyOf(entradesIguals, nNodes * 2);
+        }
+        sortides.afegirNode(nNodes);
+        entrades.afegirNode(nNodes);
+        return nNodes++;
+    }
+
+    /**
+     * @brief Afegeix una canonada dirigida de u a v amb capacitat c
+     * @param u Ordinal del node d'inici
+     * @param v Ordinal del node de destí
+     * @param c Capacitat de la canonada
+     * @pre u i v són ordinals vàlids
+     * @post S'ha afegit la canonada u->v i se n'ha retornat l'índex
+     * @return L'índex de la canonada afegida
+     */
+    public int afegirCanonada(int u, int v, float c) {
+        //Pre: u i v són ordinals vàlids
+        //Post: S'ha afegit la canonada u->v i se n'ha retornat l'índex
+        if (nCanonades == origenCanonada.length) {
+            int mida = nCanonades * 2;
+            origenCanonada = Arrays.copyOf(origenCanonada, mida);
+            destiCanonada = Arrays.copyOf(destiCanonada, mida);
+            capacitatCanonada = Arrays.copyOf(capacitatCanonada, mida);
+        }
+        origenCanonada[nCanonades] = u;
+        destiCanonada[nCanonades] = v;
+        capacitatCanonada[nCanonades] = c;
+        sortides.afegir(u, nCanonades, v);
+        entrades.afegir(v, nCanonades, u);
+        // La suma es fa en l'ordre de les entrades, com si es recorreguessin totes
+        entradesIguals[v] = grauEntrada(v) == 1 || entradesIguals[v] && c == capacitatCanonada[canonadaEntrada(iniciEntrades(v))];
+        sumaEntrades[v] += c;
+        return nCanonades++;
+    }
+
+    /**
+     * @brief Crea de cop tots els nodes i totes les canonades d'una topologia
+     * @param nNodes Nombre de nodes
+     * @param origens Ordinal del node d'inici de cada canonada
+     * @param destins Ordinal del node de destí de cada canonada
+     * @param capacitats Capacitat de cada canonada
+     * @pre La topologia és buida, els tres vectors tenen la mateixa mida i els ordinals són menors que nNodes
+     * @post La topologia té els nodes 0..nNodes-1 i la canonada c és origens[c]->destins[c] amb capacitat capacitats[c]
+     */
+    public void carregar(int nNodes, int[] origens, int[] destins, float[] capacitats) {
+        //Pre: La topologia és buida i els vectors són coherents
+        //Post: La topologia té els nodes i les canonades donats
+        int mida = Math.max(MIDA_INICIAL, origens.length);
+        this.nNodes = nNodes;
+        this.nCanonades = origens.length;
+        this.origenCanonada = Arrays.copyOf(origens, mida);
+        this.destiCanonada = Arrays.copyOf(destins, mida);
+        this.capacitatCanonada = Arrays.copyOf(capacitats, mida);
+        sortides.carregar(nNodes, origens, destins, nCanonades);
+        entrades.carregar(nNodes, destins, origens, nCanonades);
+        sumaEntrades = new float[Math.max(MIDA_INICIAL, nNodes)];
+        entradesIguals = new boolean[Math.max(MIDA_INICIAL, nNodes)];
+        for (int v = 0; v < nNodes; v++) {
+            boolean iguals = iniciEntrades(v) < fiEntrades(v);
+            float suma = 0;
+            for (int i = iniciEntrades(v); i < fiEntrades(v); i++) {
+                float capacitat = capacitatCanonada[canonadaEntrada(i)];
+                iguals &= capacitat == capacitatCanonada[canonadaEntrada(iniciEntrades(v))];
+                suma += capacitat;
+            }
+            sumaEntrades[v] = suma;
+            entradesIguals[v] = iguals;
+        }
+    }
+
+    /**
+     * @brief Retorna el nombre de nodes
+     * @pre ---
+     * @post Retorna el nombre d'ordinals assignats
+     * @return El nombre de nodes
+     */
+    public int nNodes() {
+        //Pre: ---
+        //Post: Retorna el nombre d'ordinals assignats
+        return nNodes;
+    }
+
+    /**
+     * @brief Retorna el nombre de canonades
+     * @pre ---
+     * @post Retorna el nombre d'índexs de canonada assignats
+     * @return El nombre de canonades
+     */
+    public int nCanonades() {
+        //Pre: ---
+        //Post: Retorna el nombre d'índexs de canonada assignats
+        return nCanonades;
+    }
+
+    /**
+     * @brief Retorna el node d'inici d'una canonada
+     * @param c Índex de la canonada
+     * @pre c és un índex vàlid
+     * @post Retorna l'ordinal del node d'inici de la canonada c
+     * @return L'ordinal del node d'inici
+     */
+    public int origen(int c) {
+        //Pre: c és un índex vàlid
+        //Post: Retorna l'ordinal del node d'inici de la canonada c
+        return origenCanonada[c];
+    }
+
+    /**
+     * @brief Retorna el node de destí d'una canonada
+     * @param c Índex de la canonada
+     * @pre c és un índex vàlid
+     * @post Retorna l'ordinal del node de destí de la canonada c
+     * @return L'ordinal del node de destí
+     */
+    public int desti(int c) {
+        //Pre: c és un índex vàlid
+        //Post: Retorna l'ordinal del node de destí de la canonada c
+        return destiCanonada[c];
+    }
+
+    /**
+     * @brief Retorna la capacitat d'una canonada
+     * @param c Índex de la canonada
+     * @pre c és un índex vàlid
+     * @post Retorna la capacitat de la canonada c
+     * @return La capacitat de la canonada
+     */
+    public float capacitat(int c) {
+        //Pre: c és un índex vàlid
+        //Post: Retorna la capacitat de la canonada c
+        return capacitatCanonada[c];
+    }
+
+    /**
+     * @brief Retorna la primera posició de les sortides del node u
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna l'inici del rang de sortides de u
+     * @return L'inici del rang de sortides
+     */
+    public int iniciSortides(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna l'inici del rang de sortides de u
+        return sortides.inici[u];
+    }
+
+    /**
+     * @brief Retorna la posició següent a l'última sortida del node u
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna el final (exclòs) del rang de sortides de u
+     * @return El final del rang de sortides
+     */
+    public int fiSortides(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna el final (exclòs) del rang de sortides de u
+        return sortides.fi[u];
+    }
+
+    /**
+     * @brief Retorna el nombre de canonades que surten del node u
+     * @param u Ordinal del node
+     * @pre u és un ordinal vàlid
+     * @post Retorna el grau de sortida de u
+     * @return El grau de sortida de u
+     */
+    public int grauSortida(int u) {
+        //Pre: u és un ordinal vàlid
+        //Post: Retorna el grau de sortida de u
+        return sortides.fi[u] - sortides.inici[u];
+    }
+
+    /**
+     * @brief Retorna el nombre de canonades que entren al node v
+     * @param v Ordinal del node
+     * @pre v és un ordinal vàlid
+     * @post Retorna el grau d'entrada de v
+     * @return El grau d'entrada de v
+     */
+    public int grauEntrada(int v) {
+        //Pre: v és un ordinal vàlid
+        //Post: Retorna el grau d'entrada de v
+        return entrades.fi[v] - entrades.inici[v];
+    }
+
+    /**
+     * @brief Retorna la suma de les capacitats de les canonades que entren al node v
+     * @param v Ordinal del node
+     * @pre v és un ordinal vàlid
+     * @post Retorna la suma, en l'ordre de les entrades, de les capacitats de les entrades de v
+     * @return La suma de capacitats d'entrada de v
+     */
+    public float sumaCapacitatsEntrada(int v) {
+        //Pre: v és un ordinal vàlid
+        //Post: Retorna la suma de les capacitats de les entrades de v
+        return sumaEntrades[v];
+    }
+
+    /**
+     * @brief Diu si totes les canonades que entren al node v tenen la mateixa capacitat
+     * @param v Ordinal del node
+     * @pre v és un ordinal vàlid
+     * @post Retorna si v té alguna entrada i totes tenen la mateixa capacitat
+     * @return True si v té entrades i totes tenen la mateixa capacitat, false en cas contrari
+     */
+    public boolean capacitatsEntradaIguals(int v) {
+        //Pre: v és un ordinal vàlid
+        //Post: Retorna si v té alguna entrada i totes tenen la mateixa capacitat
+        return entradesIguals[v];
+    }
+
+    /**
+     * @brief Retorna la canonada que ocupa una posició de sortida
+     * @param i Posició dins del vector de sortides
+     * @pre i pertany al rang de sortides d'algun node
+     * @post Retorna l'índex de la canonada de la posició i
+     * @return L'índex de la canonada
+     */
+    public int canonadaSortida(int i) {
+        //Pre: i pertany al rang de sortides d'algun node
+        //Post: Retorna l'índex de la canonada de la posició i
+        return sortides.canonades[i];
+    }
+
+    /**
+     * @brief Retorna el node destí d'una posició de sortida
+     * @param i Posició dins del vector de sortides
+     * @pre i pertany al rang de sortides d'algun node
+     * @post Retorna l'ordinal del node destí de la posició i
+     * @return L'ordinal del node destí
+     */
+    public int destiSortida(int i) {
+        //Pre: i pertany al rang de sortides d'algun node
+        //Post: Retorna l'ordinal del node destí de la posició i
+        return sortides.veins[i];
+    }
+
+    /**
+     * @brief Retorna la primera posició de les entrades del node v
+     * @param v Ordinal del node
+     * @pre v és un ordinal vàlid
+     * @post Retorna l'inici del rang d'entrades de v
+     * @return L'inici del rang d'entrades
+     */
+    public int iniciEntrades(int v) {
+        //Pre: v és un ordinal vàlid
+        //Post: Retorna l'inici del rang d'entrades de v
+        return entrades.inici[v];
+    }
+
+    /**
+     * @brief Retorna la posició següent a l'última entrada del node v
+     * @param v Ordinal del node
+     * @pre v és un ordinal vàlid
+     * @post Retorna el final (exclòs) del rang d'entrades de v
+     * @return El final del rang d'entrades
+     */
+    public int fiEntrades(int v) {
+        //Pre: v és un ordinal vàlid
+        //Post: Retorna el final (exclòs) del rang d'entrades de v
+        return entrades.fi[v];
+    }
+
+    /**
+     * @brief Retorna la canonada que ocupa una posició d'entrada
+     * @param i Posició dins del vector d'entrades
+     * @pre i pertany al rang d'entrades d'algun node
+     * @post Retorna l'índex de la canonada de la posició i
+     * @return L'índex de la canonada
+     */
+    public int canonadaEntrada(int i) {
+        //Pre: i pertany al rang d'entrades d'algun node
+        //Post: Retorna l'índex de la canonada de la posició i
+        return entrades.canonades[i];
+    }
+
+    /**
+     * @brief Retorna el node origen d'una posició d'entrada
+     * @param i Posició dins del vector d'entrades
+     * @pre i pertany al rang d'entrades d'algun node
+     * @post Retorna l'ordinal del node origen de la posició i
+     * @return L'ordinal del node origen
+     */
+    public int origenEntrada(int i) {
+        //Pre: i pertany al rang d'entrades d'algun node
+        //Post: Retorna l'ordinal del node origen de la posició i
+        return entrades.veins[i];
+    }
+
+    /**
+     * @class Adjacencia
+     * @brief Rangs CSR amb marge de les canonades d'un sentit (sortides o entrades) de cada node
+     *
+     * Les posicions [inici[u], fi[u]) són les canonades de u i [fi[u], limit[u]) el seu marge. Les posicions a partir
+     * d'ocupades encara no són de cap node, i buides compta les dels rangs que s'han traslladat.
+     */
+    private static class Adjacencia {
+        int[] inici = new int[MIDA_INICIAL];
+        int[] fi = new int[MIDA_INICIAL];
+        int[] limit = new int[MIDA_INICIAL];
+        int[] canonades = new int[MIDA_INICIAL]; //índex de canonada de cada posició
+        int[] veins = new int[MIDA_INICIAL];     //node de l'altre extrem de cada posició
+        int nNodes;
+        int ocupades;
+        int buides;
+
+        /**
+         * @brief Afegeix un node sense canonades ni marge
+         * @param u Ordinal del node
+         * @pre u és el següent ordinal
+         * @post u té un rang buit
+         */
+        void afegirNode(int u) {
+            if (u == inici.length) {
+                inici = Arrays.copyOf(inici, u * 2);
+                fi = Arrays.copyOf(fi, u * 2);
+                limit = Arrays.copyOf(limit, u * 2);
+            }
+            inici[u] = ocupades;
+            fi[u] = ocupades;
+            limit[u] = ocupades;
+            nNodes++;
+        }
+
+        /**
+         * @brief Afegeix una canonada al final del rang d'un node
+         * @param u Ordinal del node
+         * @param c Índex de la canonada
+         * @param vei Ordinal del node de l'altre extrem
+         * @pre u és un ordinal vàlid
+         * @post c és l'última canonada del rang de u; si el rang no tenia marge, s'ha traslladat al final
+         */
+        void afegir(int u, int c, int vei) {
+            if (fi[u] == limit[u]) traslladar(u);
+            canonades[fi[u]] = c;
+            veins[fi[u]] = vei;
+            fi[u]++;
+        }
+
+        /**
+         * @brief Construeix de cop els rangs de tots els nodes, sense marge
+         * @param nNodes Nombre de nodes
+         * @param propis Node propietari del rang de cada canonada
+         * @param altres Node de l'altre extrem de cada canonada
+         * @param nCanonades Nombre de canonades
+         * @pre Els vectors tenen com a mínim nCanonades posicions i els ordinals són menors que nNodes
+         * @post Cada node té un rang amb les seves canonades en ordre d'índex
+         */
+        void carregar(int nNodes, int[] propis, int[] altres, int nCanonades) {
+            int nodes = Math.max(MIDA_INICIAL, nNodes);
+            inici = new int[nodes];
+            fi = new int[nodes];
+            limit = new int[nodes];
+            canonades = new int[Math.max(MIDA_INICIAL, nCanonades)];
+            veins = new int[canonades.length];
+            for (int c = 0; c < nCanonades; c++) {
+                fi[propis[c]]++;
+            }
+            int posicio = 0;
+            for (int u = 0; u < nNodes; u++) {
+                inici[u] = posicio;
+                posicio += fi[u];
+                fi[u] = inici[u];
+                limit[u] = posicio;
+            }
+            for (int c = 0; c < nCanonades; c++) {
+                int i = fi[propis[c]]++;
+                canonades[i] = c;
+                veins[i] = altres[c];
+            }
+            this.nNodes = nNodes;
+            ocupades = posicio;
+            buides = 0;
+        }
+
+        /**
+         * @brief Trasllada el rang d'un node al final dels vectors, amb el doble de posicions
+         * @param u Ordinal del node
+         * @pre El rang de u no té marge
+         * @post El rang de u és al final i té marge; si calia espai i els forats ocupaven més que les canonades,
+         * abans s'han tornat a posar tots els rangs junts
+         */
+        private void traslladar(int u) {
+            int grau = fi[u] - inici[u];
+            int mida = Math.max(2, grau * 2);
+            if (ocupades + mida > canonades.length) {
+                if (buides > ocupades - buides) reagrupar();
+                if (ocupades + mida > canonades.length) {
+                    int nova = Math.max(ocupades + mida, canonades.length * 2);
+                    canonades = Arrays.copyOf(canonades, nova);
+                    veins = Arrays.copyOf(veins, nova);
+                }
+            }
+            System.arraycopy(canonades, inici[u], canonades, ocupades, grau);
+            System.arraycopy(veins, inici[u], veins, ocupades, grau);
+            buides += limit[u] - inici[u];
+            inici[u] = ocupades;
+            fi[u] = ocupades + grau;
+            limit[u] = ocupades + mida;
+            ocupades += mida;
+        }
+
+        /**
+         * @brief Torna a posar junts els rangs de tots els nodes, cadascun amb el seu marge, sense forats entre ells
+         * @pre ---
+         * @post buides == 0 i cap rang no ha canviat de contingut
+         */
+        private void reagrupar() {
+            int[] novesCanonades = new int[canonades.length];
+            int[] nousVeins = new int[veins.length];
+            int posicio = 0;
+            for (int u = 0; u < nNodes; u++) {
+                int mida = limit[u] - inici[u];
+                System.arraycopy(canonades, inici[u], novesCanonades, posicio, fi[u] - inici[u]);
+                System.arraycopy(veins, inici[u], nousVeins, posicio, fi[u] - inici[u]);
+                fi[u] = posicio + fi[u] - inici[u];
+                inici[u] = posicio;
+                limit[u] = posicio + mida;
+                posicio += mida;
+            }
+            canonades = novesCanonades;
+            veins = nousVeins;
+            ocupades = posicio;
+            buides = 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Graph;
+import org.graphstream.graph.implementations.SingleGraph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @file VistaXarxa.java
+ * @brief Fitxer que conté la classe VistaXarxa
+ */
+
+/**
+ * @class VistaXarxa
+ * @brief Representació gràfica (GraphStream) d'una xarxa de distribució d'aigua
+ *
+ * La xarxa no manté cap atribut visual: la vista es crea la primera vegada que es vol dibuixar alguna cosa
+ * i, cada cop que es mostra, reconstrueix nodes, canonades, estils i etiquetes a partir de l'estat actual
+ * de la xarxa. Només les etiquetes de les canonades (cabals o fluxos calculats) es guarden entre mostres.
+ */
+public class VistaXarxa {
+    //Descripció general: Representació gràfica d'una xarxa de distribució d'aigua, construïda a demanda
+
+    private static final String FULL_ESTIL =
+            "node { " +
+                    "text-mode: normal; " +
+                    "text-color: black; " +
+                    "text-size: 20; " +
+                    "fill-color: yellow; " +
+                    "size: 50px, 30px; " +
+                    "} " +
+                    "edge { " +
+                    "fill-color: green; " +
+                    "size: 2px; " +
+                    "}";
+
+    private final Xarxa xarxa;
+    private final Graph graph;
+    private final Map<String, String> etiquetesCanonades = new HashMap<>(); //Aqui guardarem l'etiqueta de cada canonada ("id1-id2")
+
+    /**
+     * @brief Constructor de la classe VistaXarxa
+     * @param xarxa Xarxa que es vol representar
+     * @pre xarxa != null
+     * @post S'ha creat una vista buida de la xarxa, que s'omplirà en mostrar-la
+     */
+    public VistaXarxa(Xarxa xarxa) {
+        //Pre: xarxa != null
+        //Post: S'ha creat una vista buida de la xarxa
+        System.setProperty("org.graphstream.ui", "swing");
+        this.xarxa = xarxa;
+        this.graph = new SingleGraph("Xarxa");
+    }
+
+    /**
+     * @brief Fixa l'etiqueta amb què es mostrarà una canonada
+     * @param canonada Canonada a etiquetar
+     * @param etiqueta Text de l'etiqueta
+     * @pre ---
+     * @post La canonada es mostrarà amb aquesta etiqueta mentre pertanyi a la xarxa
+     */
+    public void etiquetarCanonada(Canonada canonada, String etiqueta) {
+        //Pre: ---
+        //Post: La canonada es mostrarà amb aquesta etiqueta mentre pertanyi a la xarxa
+        etiquetesCanonades.put(canonada.node1().id() + "-" + canonada.node2().id(), etiqueta);
+    }
+
+    /**
+     * @brief Mostra la xarxa en una finestra
+     * @pre Hi ha un entorn gràfic disponible
+     * @post S'ha reconstruït el graf a partir de l'estat actual de la xarxa i s'ha obert una finestra que el mostra
+     */
+    public void mostrar() {
+        //Pre: Hi ha un entorn gràfic disponible
+        //Post: S'ha reconstruït el graf i s'ha obert una finestra que el mostra
+        sincronitzar();
+        graph.display();
+    }
+
+    /**
+     * @brief Reconstrueix el graf a partir de l'estat actual de la xarxa
+     * @pre ---
+     * @post El graf té un node per cada node de la xarxa i una aresta per cada canonada, amb els seus estils i etiquetes
+     */
+    void sincronitzar() {
+        RegistreNodes registre = xarxa.registre();
+        Topologia topologia = xarxa.topologia();
+        graph.clear();
+        graph.setAttribute("ui.stylesheet", FULL_ESTIL);
+        for (int u = 0; u < topologia.nNodes(); u++) {
+            Node node = registre.node(u);
+            org.graphstream.graph.Node nodeGraf = graph.addNode(node.id());
+            nodeGraf.setAttribute("ui.label", etiqueta(node));
+            nodeGraf.setAttribute("ui.style", estil(registre.tipus(u)));
+            nodeGraf.setAttribute("xy", node.coordenades().Longitud(), node.coordenades().Latitud());
+        }
+        for (int c = 0; c < topologia.nCanonades(); c++) {
+            String id = registre.id(topologia.origen(c)) + "-" + registre.id(topologia.desti(c));
+            Edge edge = graph.addEdge(id, registre.id(topologia.origen(c)), registre.id(topologia.desti(c)), true);
+            edge.setAttribute("ui.style", "fill-color: blue; size: 3px;");
+            String etiqueta = etiquetesCanonades.get(id);
+            if (etiqueta != null) edge.setAttribute("ui.label", etiqueta);
+        }
+    }
+
+    /**
+     * @brief Calcula l'etiqueta d'un node a partir del seu estat actual
+     * @param node Node
+     * @pre ---
+     * @post Retorna l'identificador, l'estat de l'aixeta i, si és un terminal, la seva demanda actual i de punta
+     * @return L'etiqueta del node
+     */
+    private static String etiqueta(Node node) {
+        String estadoAixeta = node.aixetaOberta() ? "Oberta" : "Tancada";
+        String demandaInfo = "";
+        if (node instanceof Terminal terminal) {
+            demandaInfo = String.format("  %.2f / %.2f",terminal.demandaActual() ,terminal.demanda());
+        }
+        return node.id() + " (" + estadoAixeta + ")"+ demandaInfo;
+    }
+
+    /**
+     * @brief Retorna l'estil d'un node segons el seu tipus
+     * @param tipus Etiqueta de tipus del node
+     * @pre tipus és una etiqueta de RegistreNodes
+     * @post Retorna groc per als orígens, verd per als terminals i vermell per a les connexions
+     * @return L'estil del node
+     */
+    private static String estil(byte tipus) {
+        if (tipus == RegistreNodes.ORIGEN) return "fill-color: yellow; size: 25px; text-size: 15;";
+        if (tipus == RegistreNodes.TERMINAL) return "fill-color: green; size: 25px; text-size: 15;";
+        return "fill-color: red; size: 25px; text-size: 15;";
+    }
+}
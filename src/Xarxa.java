@@ -1,10 +1,9 @@
 //Jhon Alejandro Parraga Mogollon
-import org.graphstream.graph.*;
-import org.graphstream.graph.implementations.*;
 import java.util.Iterator;
 import java.util.*;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
+import java.io.IOException;
 
 /**
  * @file Xarxa.java
@@ -18,31 +17,27 @@ import java.util.NoSuchElementException;
  */
 public class Xarxa {
 
-    private final Graph graph;
     private final Deque<String[]> operacions = new LinkedList<>(); //guardar les operacions per fer el backtrack
-    private final Map<Node, Float> demandas = new LinkedHashMap<>(); //Aqui guardarem les demandes de cada node
-    private final Map<Node, Float> cabals = new LinkedHashMap<>(); //Aqui guardarem els cabals de cada node
-    private final Map<Canonada, Float> canonades = new HashMap<>(); //Aqui guardarem les canonades i les demandas que porten
-    private final Map<Canonada, Float> canonadaCabals = new HashMap<>(); //Aqui guardarem les canonades i els cabals que porten
-    private final Set<Node> nodos = new HashSet<>(); //Aqui guardarem les nodos del graph
+    private final Map<String, Terminal> abonaments = new HashMap<>(); //Aqui guardarem el terminal on s'ha abonat cada client
+    private final Topologia topologia = new Topologia(); //Topologia compacta sobre la qual es fan tots els recorreguts
+    private final RegistreNodes registre = new RegistreNodes(); //Aqui guardarem l'ordinal, el node i el tipus de cada identificador
+    private final ComponentsConnexes components = new ComponentsConnexes(registre); //Aqui guardarem a quina component pertany cada node
+    private final OrdreTopologic ordreTopologic = new OrdreTopologic(components); //Aqui guardarem l'ordre topològic dels nodes i quines components tenen cicles
+    private final MotorDemanda motorDemanda = new MotorDemanda(topologia, registre); //Motor amb el qual repartim la demanda aigües amunt
+    private final MotorCabal motorCabal = new MotorCabal(topologia, registre, motorDemanda); //Motor amb el qual repartim el cabal aigües avall
+    private final MotorFlux motorFlux = new MotorFlux(topologia, registre); //Motor amb el qual calculem el flux màxim
+    private final CaminsOberts caminsOberts = new CaminsOberts(topologia, registre); //Aqui guardarem a quins nodes arriba aigua per un camí obert
+    private final MotorExces motorExces = new MotorExces(topologia, registre); //Motor amb el qual calculem l'excés de cabal de les canonades
+    private final IndexArbre indexArbre = new IndexArbre(topologia, registre); //Aqui guardarem els avantpassats de cada node de les components en forma d'arbre
+    private final IndexEspacial indexEspacial = new IndexEspacial(registre); //Aqui guardarem en quina cel·la de l'espai és cada node
+    private int versio = 1; //Augmenta cada cop que canvia la topologia; els canvis d'aixetes, demandes i cabals s'anoten al motor de cabal
+    private int versioFlux = 1; //Augmenta cada cop que canvia la topologia o alguna aixeta, que és el que afecta el flux màxim i l'índex d'arbre
+    private VistaXarxa vista; //Representació gràfica, només es crea si es dibuixa alguna cosa
+    private final Map<String, Integer> indexCanonades = new HashMap<>(); //Aqui guardarem l'index de cada canonada a la topologia
+    private final List<Canonada> canonadesIndex = new ArrayList<>(); //Aqui guardarem la canonada de cada index
     public Xarxa() {
         //Pre: ---
-        //Post: Crea una xarxa de distribució d'aigua buida
-        System.setProperty("org.graphstream.ui", "swing");
-        graph = new SingleGraph("Xarxa");
-        String styleSheet =
-                "node { " +
-                        "text-mode: normal; " +
-                        "text-color: black; " +
-                        "text-size: 20; " +
-                        "fill-color: yellow; " +
-                        "size: 50px, 30px; " +
-                        "} " +
-                        "edge { " +
-                        "fill-color: green; " +
-                        "size: 2px; " +
-                        "}";
-        graph.setAttribute("ui.stylesheet", styleSheet);
+        //Post: Crea una xarxa de distribució d'aigua buida, sense cap representació gràfica
     }
     /**
      * @brief Retorna el node de la xarxa amb l'identificador donat.
@@ -52,19 +47,7 @@ public class Xarxa {
      * @post: Retorna el node de la xarxa amb identificador id
      */
     public Node node(String id) {
-
-        if(graph.getNode(id) != null) {
-            if (graph.getNode(id).hasAttribute("origen")) {
-                return (Node) graph.getNode(id).getAttribute("origen");
-            }
-            if (graph.getNode(id).hasAttribute("terminal")) {
-                return (Node) graph.getNode(id).getAttribute("terminal");
-            }
-            if (graph.getNode(id).hasAttribute("connexio")) {
-                return (Node) graph.getNode(id).getAttribute("connexio");
-            }
-        }
-        return null;
+        return registre.node(id);
     }
     
     /**
@@ -73,17 +56,12 @@ public class Xarxa {
      * @return Iterador de les canonades sortints del node.
      * @pre: node pertany a la xarxa
      * @post: Retorna un iterador que permet recórrer totes les canonades que surten del node
+     * Els recorreguts que visiten molts nodes poden reaprofitar un sol CursorCanonades en lloc de demanar-ne un per node.
      */
     public Iterator<Canonada> sortides(Node node) {
-
-        ArrayList<Canonada> sortides = new ArrayList<>();
-        Iterator<Edge> itEdge = graph.getNode(node.id()).leavingEdges().iterator();
-        while(itEdge.hasNext()){
-            Canonada canonada = (Canonada) itEdge.next().getAttribute("Canonada");
-            sortides.add(canonada);
-        }
-
-        return sortides.iterator();
+        CursorCanonades cursor = new CursorCanonades(this);
+        cursor.situarSortides(node);
+        return cursor;
     }
     /**
      * @brief Retorna un iterador que permet recórrer totes les canonades que entren al node.
@@ -91,17 +69,210 @@ public class Xarxa {
      * @return Iterador de les canonades entrants del node.
      * @pre: node pertany a la xarxa
      * @post: Retorna un iterador que permet recórrer totes les canonades que entren al node
+     * Els recorreguts que visiten molts nodes poden reaprofitar un sol CursorCanonades en lloc de demanar-ne un per node.
      */
     public Iterator<Canonada> entrades(Node node) {
-        ArrayList<Canonada> entrades = new ArrayList<>();
-        if(node != null) {
-            Iterator<Edge> itEdge = graph.getNode(node.id()).enteringEdges().iterator();
-            while (itEdge.hasNext()) {
-                Canonada canonada = (Canonada) itEdge.next().getAttribute("Canonada");
-                entrades.add(canonada);
-            }
+        if(node == null) {
+            return Collections.emptyIterator();
+        }
+        CursorCanonades cursor = new CursorCanonades(this);
+        cursor.situarEntrades(node);
+        return cursor;
+    }
+    /**
+     * @brief Retorna el nombre de canonades que surten del node.
+     * @param node Node del qual es vol el grau de sortida.
+     * @return El nombre de canonades que surten del node.
+     * @throws NoSuchElementException Si el node no pertany a la xarxa.
+     * @pre: node pertany a la xarxa
+     * @post: Retorna el grau de sortida del node, sense recórrer les seves canonades
+     */
+    public int grauSortida(Node node) {
+        return components.grauSortida(ordinal(node));
+    }
+    /**
+     * @brief Retorna el nombre de canonades que entren al node.
+     * @param node Node del qual es vol el grau d'entrada.
+     * @return El nombre de canonades que entren al node.
+     * @throws NoSuchElementException Si el node no pertany a la xarxa.
+     * @pre: node pertany a la xarxa
+     * @post: Retorna el grau d'entrada del node, sense recórrer les seves canonades
+     */
+    public int grauEntrada(Node node) {
+        return components.grauEntrada(ordinal(node));
+    }
+    /**
+     * @brief Retorna la topologia compacta de la xarxa.
+     * @return La topologia de la xarxa.
+     * @pre: ---
+     * @post: Retorna la topologia sobre la qual es fan els recorreguts
+     */
+    Topologia topologia() {
+        return topologia;
+    }
+    /**
+     * @brief Retorna el node que té l'ordinal donat.
+     * @param ordinal Ordinal del node.
+     * @return El node amb aquest ordinal.
+     * @pre: ordinal és un ordinal vàlid de la topologia
+     * @post: Retorna el node amb l'ordinal donat
+     */
+    Node nodeOrdinal(int ordinal) {
+        return registre.node(ordinal);
+    }
+    /**
+     * @brief Retorna la canonada que té l'índex donat.
+     * @param index Índex de la canonada.
+     * @return La canonada amb aquest índex.
+     * @pre: index és un índex vàlid de la topologia
+     * @post: Retorna la canonada amb l'índex donat
+     */
+    Canonada canonada(int index) {
+        return canonadesIndex.get(index);
+    }
+    /**
+     * @brief Retorna l'ordinal que el node té a la topologia.
+     * @param node Node del qual es vol l'ordinal.
+     * @return L'ordinal del node.
+     * @throws NoSuchElementException Si el node no pertany a la xarxa.
+     * @pre: ---
+     * @post: Retorna l'ordinal del node a la topologia
+     */
+    int ordinal(Node node) {
+        int ordinal = registre.ordinal(node.id());
+        if (ordinal == RegistreNodes.NO_REGISTRAT) {
+            throw new NoSuchElementException("El node no pertany a la xarxa");
         }
-        return entrades.iterator();
+        return ordinal;
+    }
+    /**
+     * @brief Retorna el registre d'identificadors, ordinals i tipus dels nodes.
+     * @return El registre de nodes de la xarxa.
+     * @pre: ---
+     * @post: Retorna el registre de nodes, que comparteix els ordinals amb la topologia
+     */
+    RegistreNodes registre() {
+        return registre;
+    }
+    /**
+     * @brief Retorna l'índex de components connexes de la xarxa.
+     * @return L'índex de components connexes.
+     * @pre: ---
+     * @post: Retorna l'índex de components, que comparteix els ordinals amb la topologia
+     */
+    ComponentsConnexes components() {
+        return components;
+    }
+    /**
+     * @brief Retorna els ordinals de la component connexa d'un node.
+     * @param node Node de la component.
+     * @return Els ordinals dels terminals, connexions i orígens de la component, o un vector buit si node és null o no pertany a la xarxa.
+     * @pre: ---
+     * @post: Retorna els ordinals de la component connexa que conté node
+     */
+    int[] membresComponent(Node node) {
+        int ordinal = node == null ? RegistreNodes.NO_REGISTRAT : registre.ordinal(node.id());
+        if (ordinal == RegistreNodes.NO_REGISTRAT) {
+            return new int[0];
+        }
+        int[] membres = new int[components.mida(ordinal)];
+        components.copiarMembres(ordinal, membres);
+        return membres;
+    }
+    /**
+     * @brief Diu si la component connexa d'un node té algun cicle dirigit.
+     * @param node Node de la component.
+     * @return Cert si la component té cicles, fals si no en té o si node és null o no pertany a la xarxa.
+     * @pre: ---
+     * @post: Retorna si la component de node té cicles, sense recórrer-la: es manté a mesura que s'hi afegeixen canonades
+     */
+    boolean teCicles(Node node) {
+        int ordinal = node == null ? RegistreNodes.NO_REGISTRAT : registre.ordinal(node.id());
+        return ordinal != RegistreNodes.NO_REGISTRAT && ordreTopologic.teCicle(ordinal);
+    }
+    /**
+     * @brief Diu si la component connexa d'un node té forma d'arbre.
+     * @param node Node de la component.
+     * @return Cert si cap node de la component té més d'una canonada d'entrada, o si node és null o no pertany a la xarxa.
+     * @pre: ---
+     * @post: Retorna si la component de node té forma d'arbre, sense recórrer-la: les confluències es compten a mesura que s'hi afegeixen canonades
+     */
+    boolean esArbre(Node node) {
+        int ordinal = node == null ? RegistreNodes.NO_REGISTRAT : registre.ordinal(node.id());
+        return ordinal == RegistreNodes.NO_REGISTRAT || components.nConfluencies(ordinal) == 0;
+    }
+    /**
+     * @brief Registra un node nou a la topologia.
+     * @param node Node a registrar.
+     * @pre: No existeix cap node amb el mateix id a la xarxa
+     * @post: El node té un ordinal assignat a la topologia
+     */
+    private void registrar(Node node) {
+        topologia.afegirNode();
+        int u = registre.registrar(node);
+        components.afegirNode(u);
+        ordreTopologic.afegirNode(u);
+        indexEspacial.afegirNode(u);
+    }
+    /**
+     * @brief Crea de cop tots els nodes i canonades d'una instantània, omplint directament la topologia i els índexs.
+     * @param nodes Node de cada ordinal.
+     * @param tipus Etiqueta de tipus de cada ordinal.
+     * @param origens Ordinal del node d'inici de cada canonada.
+     * @param destins Ordinal del node de destí de cada canonada.
+     * @param capacitats Capacitat de cada canonada.
+     * @pre: La xarxa és buida, els identificadors són diferents, els ordinals són menors que nodes.length i no hi ha
+     * dues canonades entre els mateixos nodes
+     * @post: Cada node té per ordinal la seva posició i cada canonada el seu índex, sense recalcular cap índex per a
+     * cada node o canonada
+     */
+    void carregarTopologia(Node[] nodes, byte[] tipus, int[] origens, int[] destins, float[] capacitats) {
+        registre.carregar(nodes, tipus);
+        topologia.carregar(nodes.length, origens, destins, capacitats);
+        components.carregar(nodes.length, origens, destins);
+        ordreTopologic.carregar(topologia, origens, destins);
+        indexEspacial.carregar(nodes.length);
+        for (int c = 0; c < origens.length; c++) {
+            Canonada canonada = new Canonada(nodes[origens[c]], nodes[destins[c]], capacitats[c]);
+            indexCanonades.put(canonada.node1().id() + "-" + canonada.node2().id(), c);
+            canonadesIndex.add(canonada);
+        }
+        versio++;
+        versioFlux++;
+    }
+    /**
+     * @brief Anota el terminal on està abonat un client carregat d'una instantània.
+     * @param idClient Identificador del client.
+     * @param terminal Terminal del client.
+     * @pre: terminal pertany a la xarxa i ja té el client entre els seus abonats
+     * @post: cabalAbonat(idClient) és el cabal de terminal
+     */
+    void carregarAbonament(String idClient, Terminal terminal) {
+        abonaments.put(idClient, terminal);
+    }
+    /**
+     * @brief Retorna el terminal on està abonat cada client.
+     * @return El mapa de clients a terminals.
+     * @pre: ---
+     * @post: Retorna el mapa d'abonaments de la xarxa, que no s'ha de modificar
+     */
+    Map<String, Terminal> abonaments() {
+        return abonaments;
+    }
+    /**
+     * @brief Registra una canonada nova a la topologia.
+     * @param canonada Canonada a registrar.
+     * @pre: Els dos nodes de la canonada estan registrats i no hi ha cap canonada entre ells
+     * @post: La canonada té un índex assignat a la topologia
+     */
+    private void registrar(Canonada canonada) {
+        int u = ordinal(canonada.node1());
+        int v = ordinal(canonada.node2());
+        int c = topologia.afegirCanonada(u, v, canonada.capacitat());
+        components.unir(u, v);
+        ordreTopologic.afegirCanonada(u, v);
+        indexCanonades.put(canonada.node1().id() + "-" + canonada.node2().id(), c);
+        canonadesIndex.add(canonada);
     }
     /**
      * @brief Afegeix un node d'origen a la xarxa.
@@ -112,16 +283,10 @@ public class Xarxa {
      */
     public void afegir(Origen nodeOrigen) throws IllegalArgumentException {
         String ori = nodeOrigen.id();
-        float longitud = nodeOrigen.coordenades().Longitud();
-        float latitud = nodeOrigen.coordenades().Latitud();
-        if (graph.getNode(ori) != null) {
+        if (registre.conte(ori)) {
             throw new IllegalArgumentException("Ja existeix un node amb aquest id: " + ori);
         }
-        graph.addNode(ori).setAttribute("origen", nodeOrigen);
-        graph.getNode(ori).setAttribute("ui.label", ori);
-        graph.getNode(ori).setAttribute("ui.style", "fill-color: yellow; size: 25px; text-size: 15;");
-        graph.getNode(ori).setAttribute("xy",longitud,latitud);
-        actualizarEtiqueta(nodeOrigen);
+        registrar(nodeOrigen);
     }
     /**
      * @brief Afegeix un node terminal a la xarxa.
@@ -131,18 +296,11 @@ public class Xarxa {
      * @post: S'ha afegit nodeTerminal a la xarxa
      */
     public void afegir(Terminal nodeTerminal) {
-        nodos.add(nodeTerminal);
         String ter = nodeTerminal.id();
-        float longitud = nodeTerminal.coordenades().Longitud();
-        float latitud = nodeTerminal.coordenades().Latitud();
-        if (graph.getNode(ter) != null) {
+        if (registre.conte(ter)) {
             throw new IllegalArgumentException("Ja existeix un node amb aquest id: " + ter);
         }
-        graph.addNode(ter).setAttribute("terminal", nodeTerminal);
-        graph.getNode(ter).setAttribute("ui.label",ter);
-        graph.getNode(ter).setAttribute("ui.style", "fill-color: green; size: 25px; text-size: 15;");
-        graph.getNode(ter).setAttribute("xy",longitud,latitud);
-        actualizarEtiqueta(nodeTerminal);
+        registrar(nodeTerminal);
     }
     /**
      * @brief Afegeix un node connexió a la xarxa.
@@ -153,16 +311,10 @@ public class Xarxa {
      */
     public void afegir(Connexio nodeConnexio) {
         String cone = nodeConnexio.id();
-        float longitud = nodeConnexio.coordenades().Longitud();
-        float latitud = nodeConnexio.coordenades().Latitud();
-        if (graph.getNode(cone) != null) {
+        if (registre.conte(cone)) {
             throw new IllegalArgumentException("Ja existeix un node amb aquest id: " + cone);
         }
-        graph.addNode(cone).setAttribute("connexio", nodeConnexio);
-        graph.getNode(cone).setAttribute("ui.label",cone);
-        graph.getNode(cone).setAttribute("ui.style", "fill-color: red; size: 25px; text-size: 15;");
-        graph.getNode(cone).setAttribute("xy",longitud,latitud);
-        actualizarEtiqueta(nodeConnexio);
+        registrar(nodeConnexio);
     }
     /**
      * @brief Connecta dos nodes amb una canonada de capacitat donada.
@@ -175,10 +327,10 @@ public class Xarxa {
      * @throws IllegalArgumentException Si els nodes ja estan connectats o si node1 és un node terminal.
      */
     public void connectarAmbCanonada(Node node1, Node node2, float c) {
-        if (graph.getEdge(node1.id() + "-" + node2.id()) != null || graph.getEdge(node2.id() + "-" + node1.id()) != null) {
+        if (indexCanonades.containsKey(node1.id() + "-" + node2.id()) || indexCanonades.containsKey(node2.id() + "-" + node1.id())) {
             throw new IllegalArgumentException("Ja existeix una connexio entre aquests nodes");
         }
-        if (graph.getNode(node1.id()) == null || graph.getNode(node2.id()) == null) {
+        if (!registre.conte(node1.id()) || !registre.conte(node2.id())) {
             throw new NoSuchElementException("Un o els dos nodes no pertanyen a la xarxa");
         }
         if (node1 instanceof Terminal) {
@@ -188,16 +340,13 @@ public class Xarxa {
         Canonada canonada = new Canonada(node1, node2, c);
 
         if (node2 instanceof Origen) {
-            graph.getNode(node2.id()).setAttribute("connexio", new Connexio(node2.id(), node2.coordenades()));
-            actualizarConexiones(node2, (Connexio) graph.getNode(node2.id()).getAttribute("connexio"));
-            graph.getNode(node2.id()).removeAttribute("origen");
-            graph.getNode(node2.id()).setAttribute("ui.label", node2.id());
-            graph.getNode(node2.id()).setAttribute("ui.style", "fill-color: red; size: 25px; text-size: 15;");
-            actualizarEtiqueta((Connexio) graph.getNode(node2.id()).getAttribute("connexio"));
-            canonada = new Canonada(node1, (Connexio) graph.getNode(node2.id()).getAttribute("connexio"), c);
+            Connexio connexio = new Connexio(node2.id(), node2.coordenades());
+            actualizarConexiones(node2, connexio);
+            canonada = new Canonada(node1, connexio, c);
         }
-            graph.addEdge(node1.id() + "-" + node2.id(), node1.id(), node2.id(), true).setAttribute("Canonada", canonada);
-            graph.getEdge(node1.id() + "-" + node2.id()).setAttribute("ui.style", "fill-color: blue; size: 3px;");
+        registrar(canonada);
+        versio++;
+        versioFlux++;
     }
     /**
      * @brief Actualitza les connexions d'un node antic a un node nou de connexió.
@@ -207,18 +356,22 @@ public class Xarxa {
      * @post: Totes les connexions sortints i entrants del node antiguo s'actualitzen per apuntar al node nou.
      */
     private void actualizarConexiones(Node antiguo, Connexio nuevo) {
-        Iterator<Canonada> itSalientes = sortides(antiguo);
-        while (itSalientes.hasNext()) {
-            Canonada canonada = itSalientes.next();
+        int u = ordinal(antiguo);
+        byte anterior = registre.tipus(u);
+        registre.substituir(u, nuevo);
+        components.canviarTipus(u, anterior);
+        for (int i = topologia.iniciSortides(u); i < topologia.fiSortides(u); i++) {
+            int c = topologia.canonadaSortida(i);
+            Canonada canonada = canonadesIndex.get(c);
             Canonada nuevaCanonada = new Canonada(nuevo, canonada.node2(), canonada.capacitat());
-            graph.getEdge(antiguo.id() + "-" + canonada.node2().id()).setAttribute("Canonada", nuevaCanonada);
+            canonadesIndex.set(c, nuevaCanonada);
         }
 
-        Iterator<Canonada> itEntrantes = entrades(antiguo);
-        while (itEntrantes.hasNext()) {
-            Canonada canonada = itEntrantes.next();
+        for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+            int c = topologia.canonadaEntrada(i);
+            Canonada canonada = canonadesIndex.get(c);
             Canonada nuevaCanonada = new Canonada(canonada.node1(), nuevo, canonada.capacitat());
-            graph.getEdge(canonada.node2().id() + "-" + antiguo.id()).setAttribute("Canonada", nuevaCanonada);
+            canonadesIndex.set(c, nuevaCanonada);
         }
     }
     /**
@@ -229,7 +382,8 @@ public class Xarxa {
      * @post: Retorna la canonada associada amb l'identificador proporcionat.
      */
     public Canonada retornarCapacitat(String canonada){
-        return (Canonada) graph.getEdge(canonada).getAttribute("Canonada");
+        Integer c = indexCanonades.get(canonada);
+        return c == null ? null : canonadesIndex.get(c);
     }
     /**
      * @brief Abona un cliente a un terminal.
@@ -241,12 +395,13 @@ public class Xarxa {
      * @throws NoSuchElementException Si el nodo terminal no pertenece a la red.
      */
     public boolean abonar(String idClient, Terminal nodeTerminal) {
-        if (graph.getNode(nodeTerminal.id()) == null) {
+        if (!registre.conte(nodeTerminal.id())) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
         boolean Abonat = nodeTerminal.abonat(idClient);
-        Terminal terminal = (Terminal) graph.getNode(nodeTerminal.id()).getAttribute("terminal");
+        Terminal terminal = (Terminal) registre.node(ordinal(nodeTerminal));
         terminal.afegirAbonat(idClient);
+        abonaments.put(idClient, terminal);
         return Abonat;
     }
     /**
@@ -257,16 +412,11 @@ public class Xarxa {
      * @post: Retorna el cabal actual al punt d'abastament del client identificat amb idClient7
      */
     public float cabalAbonat(String idClient) {
-        float cabal = 0;
-        for(Node node : nodos){
-            if (node instanceof Terminal){
-                Terminal terminal = (Terminal) graph.getNode(node.id()).getAttribute("terminal");
-                if(abonar(idClient,terminal)){
-                    cabal = cabals.get(node);
-                }
-            }
+        Terminal terminal = abonaments.get(idClient);
+        if (terminal == null || !registre.conte(terminal.id())) {
+            return 0;
         }
-        return cabal;
+        return motorCabal.cabalNode(calcular(terminal));
     }
     /**
      * @brief Abre la válvula de un nodo.
@@ -276,7 +426,7 @@ public class Xarxa {
      * @post: L'aixeta del node està oberta
      */
     public void obrirAixeta(Node node) {
-        if (graph.getNode(node.id()) == null) {
+        if (!registre.conte(node.id())) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
         boolean estabaTancada;
@@ -288,7 +438,8 @@ public class Xarxa {
             operacions.push(new String[]{node.id(),"obert"});
         }
         node.obrirAixeta();
-        actualizarEtiqueta(node);
+        motorCabal.marcarDemanda(ordinal(node), versio);
+        versioFlux++;
     }
     /**
      * @brief Cierra la válvula de un nodo.
@@ -298,7 +449,7 @@ public class Xarxa {
      * @post: L'aixeta del node està tancada
      */
     public void tancarAixeta(Node node) {
-        if (graph.getNode(node.id()) == null) {
+        if (!registre.conte(node.id())) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
         boolean estabaOberta;
@@ -310,7 +461,19 @@ public class Xarxa {
             operacions.push(new String[]{node.id(),"tancat"});
         }
         node.tancarAixeta();
-        actualizarEtiqueta(node);
+        motorCabal.marcarDemanda(ordinal(node), versio);
+        versioFlux++;
+    }
+    /**
+     * @brief Tanca l'aixeta d'un node sense guardar-ho a l'historial d'operacions.
+     * @param node Node del qual es vol tancar l'aixeta.
+     * @pre: node pertany a la xarxa
+     * @post: L'aixeta del node està tancada i recular no desfarà aquest tancament
+     */
+    void tancarAixetaSenseHistorial(Node node) {
+        node.tancarAixeta();
+        motorCabal.marcarDemanda(ordinal(node), versio);
+        versioFlux++;
     }
     /**
      * @brief Desfer un nombre de passos en la seqüència d'operacions realitzades d'obrir i tancar vàlvules.
@@ -334,7 +497,8 @@ public class Xarxa {
             } else {
                 node.tancarAixeta();
             }
-            actualizarEtiqueta(node);
+            motorCabal.marcarDemanda(ordinal(node), versio);
+            versioFlux++;
         }
     }
     /**
@@ -345,13 +509,14 @@ public class Xarxa {
      * @throws IllegalArgumentException Si el cabal és negatiu.
      */
     public void establirCabal(Origen nodeOrigen, float cabal) {
-        if (graph.getNode(nodeOrigen.id()) == null) {
+        if (!registre.conte(nodeOrigen.id())) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
         if ( cabal < 0) {
             throw new IllegalArgumentException("El cabal es negatiu");
         }
         nodeOrigen.establirCabal(cabal);
+        motorCabal.marcarCabal(ordinal(nodeOrigen), versio);
     }
     /**
      * @brief Estableix la demanda d'un node terminal.
@@ -361,14 +526,14 @@ public class Xarxa {
      * @throws IllegalArgumentException Si la demanda és negativa.
      */
     public void establirDemanda(Terminal nodeTerminal, float demanda) {
-        if (graph.getNode(nodeTerminal.id()) == null) {
+        if (!registre.conte(nodeTerminal.id())) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
         if ( demanda < 0) {
             throw new IllegalArgumentException("La demanda es negativa");
         }
         nodeTerminal.establirDemandaActual(demanda);
-        actualizarEtiqueta(nodeTerminal);
+        motorCabal.marcarDemanda(ordinal(nodeTerminal), versio);
     }
     /**
      * @brief Obté la demanda teòrica d'un node.
@@ -379,107 +544,10 @@ public class Xarxa {
      * @throws NoSuchElementException Si el node no pertany a la xarxa.
      */
     public float demanda(Node node) {
-        List<Node> nodesGraph = getNodes(node);
-        for(Node node1 : nodesGraph){
-            Iterator<Canonada> it = entrades(node1);
-            while(it.hasNext()){
-                Canonada canonada = it.next();
-                canonades.put(canonada, 0f);
-            }
-        }
-        for(Node node1 : nodesGraph){
-            if (node1 instanceof Terminal){
-                demandas.put(node1, ((Terminal) node1).demandaActual());
-            }
-            else{
-                demandas.put(node1, 0f);
-            }
-        }
-        for(Node nodeNou : nodesGraph){
-            if (nodeNou instanceof Terminal){
-                float demandaPrimera = demandas.get(nodeNou);
-                dfs(nodeNou, demandaPrimera, canonades);
-            }
-        }
-        Float demanda = demandas.get(node);
-        return demanda == null ? 0 : demanda;
-    }
-    /**
-     * @brief Realitza una cerca en profunditat (DFS) per distribuir la demanda a través de la xarxa de nodes.
-     * @param node Node actual des del qual s'inicia la DFS.
-     * @param demandaPrimera La demanda inicial que s'ha de distribuir des del node actual.
-     * @param canonades Map que associa cada canonada amb la seva demanda actual.
-     * @pre La demandaPrimera és no negativa i node pertany a la xarxa.
-     * @post Es distribueix la demanda a través de la xarxa de nodes seguint les capacitats de les canonades.
-     */
-    public void dfs(Node node, float demandaPrimera, Map<Canonada, Float> canonades) {
-        Iterator<Canonada> it = entrades(node);
-        int count = 0;
-        float total = 0;
-        List<Float> capacidades = new ArrayList<>();
-
-        while(it.hasNext()) {
-            Canonada canonada = it.next();
-            capacidades.add(canonada.capacitat());
-            total += canonada.capacitat();
-            count++;
-        }
-        boolean capacidadesIguales = new HashSet<>(capacidades).size() == 1;
-        it = entrades(node);
-        if (demandaPrimera != 0 && count > 0) {
-            while (it.hasNext()) {
-                Canonada canonada = it.next();
-                Node nodeReceptor = canonada.node1();
-                demandas.putIfAbsent(nodeReceptor, 0f);
-                if (!canonada.node1().aixetaOberta()) {
-                    dfs(nodeReceptor, 0, canonades);
-                } else {
-                    float demandaNova;
-                    if (count > 1 && capacidadesIguales) {
-                        demandaNova = demandaPrimera / count;
-                    } else {
-                        demandaNova = (demandaPrimera / total) * canonada.capacitat();
-                    }
-                    calculadoraDemanda(nodeReceptor, demandaNova, canonada,canonades);
-                }
-            }
-        }
-    }
-    /**
-     * @brief Calcula i ajusta la demanda d'un node receptor en funció de la capacitat de la canonada.
-     * @pre El node receptor i la canonada han d'estar inicialitzats i presents en les estructures de dades.
-     * @pre La demandaNova ha de ser un valor positiu.
-     * @pre El mapa de canonades ha de contenir la canonada proporcionada.
-     * @post La demanda del node receptor es veurà incrementada en funció de la capacitat de la canonada.
-     * @post El valor associat a la canonada en el mapa de canonades serà actualitzat.
-     * @param nodeReceptor El node receptor al qual es vol assignar la nova demanda.
-     * @param demandaNova La quantitat de nova demanda que es vol assignar al node receptor.
-     * @param canonada La canonada a través de la qual es vol assignar la demanda.
-     * @param canonades Un mapa de les canonades i les seves demandes actuals.
-     */
-    public void calculadoraDemanda(Node nodeReceptor, float demandaNova, Canonada canonada,Map<Canonada, Float> canonades){
-        float capacidad = canonada.capacitat();
-        float demandaAjustada = Math.min(demandaNova, capacidad);
-        float demandaActual = demandas.get(nodeReceptor);
-        float demandaFinal = demandaActual + demandaAjustada;
-        demandas.put(nodeReceptor, demandaFinal);
-        float demandaCanonada = canonades.get(canonada);
-        float demandaCanonadaNova = demandaCanonada + demandaAjustada;
-        if (capacidad == demandaCanonada) {
-            demandas.put(nodeReceptor, demandaActual);
-            demandaAjustada = 0;
-        } else {
-            if (capacidad == demandaCanonadaNova) {
-                canonades.put(canonada, demandaCanonadaNova);
-            } else if (capacidad < demandaCanonadaNova) {
-                canonades.put(canonada, demandaAjustada + demandaCanonada);
-                demandas.put(nodeReceptor, (demandaAjustada - demandaCanonada) + demandaActual);
-                demandaAjustada = 0;
-            } else {
-                canonades.put(canonada, demandaCanonadaNova);
-            }
+        if (node == null || !registre.conte(node.id())) {
+            return 0;
         }
-        dfs(nodeReceptor, demandaAjustada, canonades);
+        return motorDemanda.demandaNode(calcular(node));
     }
     /**
      * @brief Calcula la demanda teòrica al node segons la configuració actual de la xarxa.
@@ -493,75 +561,60 @@ public class Xarxa {
         //Pre: node pertany a la xarxa
         //Post: Retorna la demanda teòrica al node segons la configuració actual de la xarxa
         //Excepcions: NoSuchElementException si node no pertany a la xarxa
-        if (graph.getNode(node.id()) == null) {
+        if (!registre.conte(node.id())) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
-        List<Node> nodeGraph = getNodes(node);
-        for(Node node1 : nodeGraph){
-            Iterator<Canonada> it = entrades(node1);
-            while(it.hasNext()){
-                Canonada canonada = it.next();
-                canonadaCabals.put(canonada, 0f);
-            }
-        }
-        for(Node node1 : nodeGraph){
-            if (node1 instanceof Origen){
-                float cabalAjustada = Math.min(((Origen) node1).cabal(), demanda(node1));
-                cabals.put(node1, cabalAjustada);
-            }
-            else{
-                cabals.put(node1, 0f);
-            }
-        }
-        for(Node nodeNou : nodeGraph){
-            if(nodeNou instanceof Origen){
-                float cabalOrigen = cabals.get(nodeNou);
-                dfsCabals(nodeNou,cabalOrigen);
-            }
-        }
-        return cabals.get(node);
-    }
-    /**
-     * @brief Realitza una cerca en profunditat (DFS) per distribuir el cabal a través de la xarxa de nodes.
-     * @param node Node actual des del qual s'inicia la DFS.
-     * @param cabalOrigen El cabal inicial que s'ha de distribuir des del node actual.
-     * @pre cabalOrigen és no negatiu i node pertany a la xarxa.
-     * @post Es distribueix el cabal a través de la xarxa de nodes seguint les capacitats de les canonades.
-     */
-    public void dfsCabals(Node node, float cabalOrigen){
-        Iterator <Canonada> it = sortides(node);
-        if (cabalOrigen != 0){
-            while(it.hasNext()) {
-                Canonada canonada = it.next();
-                Node nodeReceptor = canonada.node2();
-                cabals.putIfAbsent(nodeReceptor, 0f);
-                if (!canonada.node2().aixetaOberta()) {
-                    dfs(nodeReceptor, 0, canonadaCabals);
-                } else {
-                    float diferencia = cabalOrigen / demanda(node);
-                    float nouCabalCanonada = diferencia * canonades.get(canonada);
-                    float cabalCanonada = canonadaCabals.get(canonada);
-                    canonadaCabals.put(canonada, nouCabalCanonada + cabalCanonada);
-                    float cabalActual = cabals.get(nodeReceptor);
-                    cabals.put(nodeReceptor, cabalActual + nouCabalCanonada);
-                    dfsCabals(nodeReceptor, nouCabalCanonada);
-                }
-            }
+        return motorCabal.cabalNode(calcular(node));
+    }
+    /**
+     * @brief Assegura que la demanda i el cabal de la component d'un node estan calculats per a l'estat actual.
+     * @param node Node de la component.
+     * @return L'ordinal del node.
+     * @pre node pertany a la xarxa.
+     * @post Els motors de demanda i de cabal tenen el resultat de la component de node; si la topologia no ha canviat
+     * només es recalculen els nodes afectats pels canvis d'aixetes, demandes i cabals anotats des de l'última consulta.
+     */
+    private int calcular(Node node) {
+        int u = ordinal(node);
+        motorCabal.actualitzar(versio);
+        if (!motorCabal.calculat(u, versio)) {
+            int[] membres = membresComponent(node);
+            motorCabal.calcular(membres, membres.length, versio);
         }
+        return u;
     }
     public void dibuixar(Origen nodeOrigen) {
         //Pre: ---        //Post: Dibuixa la xarxa de distribució d'aigua
-        demanda(nodeOrigen);
-        cabal(nodeOrigen);
-        for (Map.Entry<Canonada, Float> entry : canonadaCabals.entrySet()) {
-            Canonada canonada = entry.getKey();
-            float capacitat = canonada.capacitat();
-            Float value = entry.getValue();
-            Edge edge = graph.getEdge(canonada.node1().id()  + "-" + canonada.node2().id());
-            String etiqueta = String.format(" %.5f / %.5f", value, capacitat);
-            edge.setAttribute("ui.label", etiqueta);
+        calcular(nodeOrigen);
+        for (int u : membresComponent(nodeOrigen)) {
+            for (int i = topologia.iniciEntrades(u); i < topologia.fiEntrades(u); i++) {
+                int c = topologia.canonadaEntrada(i);
+                String etiqueta = String.format(" %.5f / %.5f", motorCabal.cabalCanonada(c), topologia.capacitat(c));
+                vista().etiquetarCanonada(canonadesIndex.get(c), etiqueta);
+            }
         }
-        graph.display();
+        vista().mostrar();
+    }
+    /**
+     * @brief Guarda la xarxa en una instantània binària.
+     * @param fitxer Camí del fitxer de la instantània.
+     * @throws IOException Si el fitxer no es pot escriure.
+     * @pre: ---
+     * @post: Xarxa.carregar(fitxer) retorna una xarxa igual a aquesta, sense historial d'aixetes
+     */
+    public void guardar(String fitxer) throws IOException {
+        InstantaniaXarxa.guardar(this, fitxer);
+    }
+    /**
+     * @brief Carrega una xarxa d'una instantània binària.
+     * @param fitxer Camí del fitxer de la instantània.
+     * @return La xarxa carregada.
+     * @throws IOException Si el fitxer no es pot llegir o no és una instantània vàlida d'aquesta versió.
+     * @pre: ---
+     * @post: Retorna la xarxa guardada amb guardar(fitxer)
+     */
+    public static Xarxa carregar(String fitxer) throws IOException {
+        return InstantaniaXarxa.carregar(fitxer);
     }
     /**
      * @brief Obté la llista de nodes visitats a partir d'un node donat.
@@ -571,220 +624,199 @@ public class Xarxa {
      * @post Retorna una llista de nodes visitats ordenats segons el tipus de node.
      */
     public List<Node> getNodes(Node node) {
-        Set<Node> visited = new HashSet<>();
-        if (node != null) {
-            Node node1 = null;
-            if (!(node instanceof Origen)) {
-                if (node instanceof Terminal) {
-                    if(graph.getNode(node.id()) != null){
-                        node1 = (Node) graph.getNode(node.id()).getAttribute("terminal");
-                    }
-                } else if (node instanceof Connexio) {
-                    if(graph.getNode(node.id()) != null){
-                        node1 = (Node) graph.getNode(node.id()).getAttribute("connexio");
-                    }
-                }
-            } else {
-                if(graph.getNode(node.id()) != null){
-                    node1 = (Node) graph.getNode(node.id()).getAttribute("origen");
-                }
-            }
-            dfs(node1, visited);
-        }
-        List<Node> visitatsOrdenats = new ArrayList<>(visited);
-        visitatsOrdenats.sort(this::compare);
-        return visitatsOrdenats;
-    }
-    /**
-     * @brief Realitza una cerca en profunditat (DFS) per visitar tots els nodes connectats.
-     * @param actual Node actual en la cerca.
-     * @param visitados Conjunt de nodes ja visitats.
-     * @pre actual és un node vàlid i visitados és un conjunt buit o parcialment complet.
-     * @post Afegeix els nodes visitats al conjunt visitados.
-     */
-    private void dfs(Node actual, Set<Node> visitados) {
-        visitados.add(actual);
-        if (actual != null) {
-            Iterator<Edge> salientes = graph.getNode(actual.id()).leavingEdges().iterator();
-            while (salientes.hasNext()) {
-                Edge edge = salientes.next();
-                String nom = edge.getOpposite(graph.getNode(actual.id())).getId();
-                Node destino = getNodeNou(nom);
-                if (destino != null && !visitados.contains(destino)) {
-                    dfs(destino, visitados);
-                }
-            }
-        }
-        if(actual != null) {
-            Iterator<Edge> entrantes = graph.getNode(actual.id()).enteringEdges().iterator();
-            while (entrantes.hasNext()) {
-                Edge edge = entrantes.next();
-                String nom = edge.getOpposite(graph.getNode(actual.id())).getId();
-                Node origen = getNodeNou(nom);
-                if (origen != null && !visitados.contains(origen)) {
-                    dfs(origen, visitados);
-                }
+        List<Node> visitats = new ArrayList<>();
+        if (node == null) {
+            return visitats;
+        }
+        int ordinal = registre.ordinal(node.id());
+        if (ordinal == RegistreNodes.NO_REGISTRAT) {
+            return visitats;
+        }
+        // Terminals, connexions i orígens, en l'ordre en què l'índex de components els guarda
+        visitats = new ArrayList<>(components.mida(ordinal));
+        for (byte tipus = RegistreNodes.TERMINAL; tipus <= RegistreNodes.ORIGEN; tipus++) {
+            int[] membres = components.membres(ordinal, tipus);
+            for (int i = 0; i < components.nMembres(ordinal, tipus); i++) {
+                visitats.add(registre.node(membres[i]));
             }
         }
+        return visitats;
     }
     /**
-     * @brief Obté un node nou basat en el seu nom.
-     * @param nom Nom del node a obtenir.
-     * @return El node corresponent al nom, o null si no existeix.
-     * @pre nom és un identificador vàlid per a un node.
-     * @post Retorna el node corresponent al nom si existeix, o null en cas contrari.
+     * @brief Retorna la representació gràfica de la xarxa, creant-la si encara no existeix.
+     * @return La vista de la xarxa.
+     * @pre: ---
+     * @post: Retorna la vista de la xarxa; abans de la primera crida, la xarxa no té cap atribut visual
      */
-    private Node getNodeNou(String nom) {
-        if (graph.getNode(nom).hasAttribute("origen")) {
-            return (Node) graph.getNode(nom).getAttribute("origen");
-        } else if (graph.getNode(nom).hasAttribute("terminal")) {
-            return (Node) graph.getNode(nom).getAttribute("terminal");
-        } else if (graph.getNode(nom).hasAttribute("connexio")) {
-            return (Node) graph.getNode(nom).getAttribute("connexio");
+    VistaXarxa vista() {
+        if (vista == null) {
+            vista = new VistaXarxa(this);
         }
-        return null;
+        return vista;
     }
+
     /**
-     * @brief Ordena els nodes segons el seu tipus.
-     * @param node Node a ordenar.
-     * @return Un enter representant la prioritat de l'ordre (0 per Terminal, 1 per Connexio, 2 per Origen, 4 per altres).
-     * @pre node és un node vàlid.
-     * @post Retorna un valor enter per ordenar els nodes segons el seu tipus.
+     * @brief Calcula el flux màxim que pot anar dels orígens als terminals de la component d'un node.
+     * @param node Node de la component.
+     * @return El flux màxim de la component.
+     * @pre node pertany a la xarxa.
+     * @post Retorna el flux màxim de la component de node segons la capacitat de les canonades i les aixetes obertes;
+     * la xarxa no es modifica i només es recalcula si la topologia o alguna aixeta ha canviat.
      */
-    private int ordenarPerTipus(Node node) {
-        if (node instanceof Terminal) {
-            return 0;
-        } else if (node instanceof Connexio) {
-            return 1;
-        } else if (node instanceof Origen) {
-            return 2;
+    float fluxMaxim(Node node) {
+        int u = ordinal(node);
+        if (!motorFlux.calculat(u, versioFlux)) {
+            int[] membres = membresComponent(node);
+            motorFlux.calcular(membres, membres.length, versioFlux);
         }
-        return 4;
+        return motorFlux.valor(u);
     }
     /**
-     * @brief Actualitza l'etiqueta d'un node amb el seu estat actual.
-     * @param node Node del qual s'ha d'actualitzar l'etiqueta.
+     * @brief Canvia l'etiqueta de les canonades amb el flux màxim i mostra la xarxa.
+     * @param node Node de la component de la qual es vol dibuixar el flux màxim.
      * @pre node pertany a la xarxa.
-     * @post L'etiqueta del node reflecteix l'estat actual de la seva aixeta i la seva demanda (si és un terminal).
+     * @post Cada canonada entre nodes oberts de la component té l'etiqueta del seu flux i la seva capacitat.
      */
-    public void actualizarEtiqueta(Node node) {
-        String estadoAixeta = node.aixetaOberta() ? "Oberta" : "Tancada";
-        String demandaInfo = "";
-        if (node instanceof Terminal terminal) {
-            demandaInfo = String.format("  %.2f / %.2f",terminal.demandaActual() ,terminal.demanda());
+    void canviarEtiquetaFluxMaxim(Node node) {
+        fluxMaxim(node);
+        for (int v : membresComponent(node)) {
+            if (!registre.node(v).aixetaOberta()) continue;
+            for (int i = topologia.iniciEntrades(v); i < topologia.fiEntrades(v); i++) {
+                if (!registre.node(topologia.origenEntrada(i)).aixetaOberta()) continue;
+                int c = topologia.canonadaEntrada(i);
+                String etiqueta = String.format("Flux: %.2f / %.2f", motorFlux.flux(c), topologia.capacitat(c));
+                vista().etiquetarCanonada(canonada(c), etiqueta);
+            }
         }
-        String label = node.id() + " (" + estadoAixeta + ")"+ demandaInfo;
-        graph.getNode(node.id()).setAttribute("ui.label", label);
+        vista().mostrar();
     }
-
     /**
-     * @brief Prova el flux entre dos nodes i ajusta la xarxa en conseqüència.
-     * @param node1 Node inicial per a la prova de flux.
-     * @param nou Nou node a afegir i provar.
-     * @pre node1 pertany a la xarxa i nou és un node vàlid.
-     * @post La xarxa s'ajusta per a incloure el nou node i redistribuir el flux.
+     * @brief Calcula a quins nodes de la component d'un node arriba aigua per un camí obert.
+     * @param node Node de la component.
+     * @return Els camins oberts de la component, vàlids fins que canviï alguna aixeta o la topologia.
+     * @pre node pertany a la xarxa.
+     * @post Retorna els nodes de la component als quals s'arriba des d'algun origen obert passant només per nodes
+     * oberts, amb un sol recorregut des de tots els orígens alhora.
      */
-    public void provaFlux(Node node1, Node nou){
-        List<Node> nodesEliminar = new ArrayList<>();
-        Map<Node, Float> mapCapacitats = new HashMap<>();
-
-        if(nou instanceof Origen origen) {
-            if (graph.getNode(nou.id()) == null) {
-                afegir(origen);
-            }
-            for (Node node : getNodes(node1)) {
-                if (node instanceof Origen) {
-                    Iterator<Canonada> it = sortides(node);
-                    while (it.hasNext()) {
-                        Canonada canonada = it.next();
-                        mapCapacitats.put(canonada.node2(), canonada.capacitat());
-                    }
-                    nodesEliminar.add(node);
-                }
-            }
-            for (Map.Entry<Node, Float> entry : mapCapacitats.entrySet()) {
-                crearCanonadesFlux(nou, entry.getKey(), entry.getValue());
-            }
-        }
-        else if (nou instanceof Terminal terminal){
-            if (graph.getNode(nou.id()) == null) {
-                afegir(terminal);
-            }
-            for (Node node : getNodes(node1)) {
-                if (node instanceof Terminal) {
-                    Iterator<Canonada> it = entrades(node);
-                    while (it.hasNext()) {
-                        Canonada canonada = it.next();
-                        mapCapacitats.put(canonada.node1(), canonada.capacitat());
-                    }
-                    nodesEliminar.add(node);
-                }
-            }
-            for (Map.Entry<Node, Float> entry : mapCapacitats.entrySet()) {
-                crearCanonadesFlux(entry.getKey(), nou, entry.getValue()); // Invertim l'ordre dels nodes
-            }
-        }
-
-        for (Node node : nodesEliminar) {
-            graph.removeNode(node.id());
+    CaminsOberts caminsOberts(Node node) {
+        int[] membres = membresComponent(node);
+        caminsOberts.calcular(membres, membres.length);
+        return caminsOberts;
+    }
+    /**
+     * @brief Retorna els nodes de la xarxa més propers a unes coordenades.
+     * @param c Coordenades de referència.
+     * @param k Nombre de nodes a retornar.
+     * @return Els min(k, nodes de la xarxa) nodes més propers a c.
+     * @pre k >= 0.
+     * @post Retorna els nodes ordenats per distància a c i, en cas d'empat, per identificador; només es calcula la
+     * distància dels nodes de les cel·les de l'índex espacial properes a c, i un sol cop per node.
+     */
+    List<Node> nodesPropers(Coordenades c, int k) {
+        return resultatEspacial(indexEspacial.properes(c, k));
+    }
+    /**
+     * @brief Retorna els nodes de la xarxa que hi ha dins d'un radi al voltant d'unes coordenades.
+     * @param c Coordenades de referència.
+     * @param radi Radi en km.
+     * @return Els nodes a distància radi o menys de c.
+     * @pre radi >= 0.
+     * @post Retorna els nodes ordenats per distància a c i, en cas d'empat, per identificador; només es calcula la
+     * distància dels nodes de les cel·les de l'índex espacial que toquen el radi, i un sol cop per node.
+     */
+    List<Node> nodesDinsRadi(Coordenades c, double radi) {
+        return resultatEspacial(indexEspacial.dinsRadi(c, radi));
+    }
+    /**
+     * @brief Converteix el resultat de l'última consulta de l'índex espacial en una llista de nodes.
+     * @param n Nombre de resultats de la consulta.
+     * @return Els nodes del resultat, en el mateix ordre.
+     */
+    private List<Node> resultatEspacial(int n) {
+        List<Node> nodes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            nodes.add(registre.node(indexEspacial.resultat(i)));
         }
+        return nodes;
     }
     /**
-     * @brief Crea una canonada per a dirigir el flux entre dos nodes.
-     * @param node1 Node d'origen de la canonada.
-     * @param node2 Node de destí de la canonada.
-     * @param c Capacitat de la canonada.
-     * @pre node1 i node2 pertanyen a la xarxa i c és no negativa.
-     * @post La canonada es crea i s'afegeix a la xarxa amb l'estil adequat.
+     * @brief Retorna l'índex d'arbre arrelat de la component d'un node.
+     * @param node Node de la component.
+     * @return L'índex de la component, amb pares, profunditats, recorregut d'Euler i salts binaris.
+     * @pre node pertany a la xarxa i cap node de la seva component té més d'una canonada d'entrada.
+     * @post Retorna l'índex de la component de node; només es recalcula si la topologia o alguna aixeta ha canviat.
      */
-    public void crearCanonadesFlux(Node node1, Node node2, float c){
-        Canonada canonada = new Canonada(node1, node2, c);
-        graph.addEdge(node1.id() + "-" + node2.id(), node1.id(), node2.id(), true).setAttribute("Canonada", canonada);
-        graph.getEdge(node1.id() + "-" + node2.id()).setAttribute("ui.style", "fill-color: blue; size: 3px;");
+    IndexArbre indexArbre(Node node) {
+        int u = ordinal(node);
+        if (!indexArbre.calculat(u, versioFlux)) {
+            int[] membres = membresComponent(node);
+            indexArbre.calcular(membres, membres.length, versioFlux);
+        }
+        return indexArbre;
     }
     /**
-     * @brief Compara dos nodes per ordre de tipus.
-     * @param n1 Primer node a comparar.
-     * @param n2 Segon node a comparar.
-     * @return Un valor negatiu, zero o positiu si el primer node és menor, igual o més gran que el segon node.
-     * @pre n1 i n2 són nodes vàlids.
-     * @post Retorna el resultat de la comparació segons el tipus de node.
+     * @brief Retorna les canonades que portarien més cabal que la seva capacitat si es satisfés tota la demanda.
+     * @param canonades Canonades a comprovar, d'una mateixa component.
+     * @return Les canonades de canonades amb excés de cabal.
+     * @throws IllegalArgumentException Si la component té cicles.
+     * @throws NoSuchElementException Si canonades és buit.
+     * @pre Les canonades pertanyen a una mateixa component de la xarxa.
+     * @post Retorna les canonades amb excés de cabal; la demanda i el cabal de tota la component es calculen un sol
+     * cop, seguint l'ordre topològic mantingut, i cada canonada només es consulta pel seu índex.
      */
-    private int compare(Node n1, Node n2) {
-        return Integer.compare(ordenarPerTipus(n1), ordenarPerTipus(n2));
+    List<Canonada> excesCabal(Collection<Canonada> canonades) {
+        Node node = canonades.iterator().next().node1();
+        if (teCicles(node)) {
+            throw new IllegalArgumentException("La xarxa té cicles");
+        }
+        int[] membres = membresComponent(node);
+        caminsOberts.calcular(membres, membres.length);
+        ordreTopologic.ordenar(membres, membres.length, membres);
+        motorExces.calcular(membres, membres.length, caminsOberts);
+        List<Canonada> excedents = new ArrayList<>();
+        for (Canonada canonada : canonades) {
+            Integer c = indexCanonades.get(canonada.node1().id() + "-" + canonada.node2().id());
+            if (c != null && canonadesIndex.get(c) == canonada && motorExces.exces(c)) {
+                excedents.add(canonada);
+            }
+        }
+        return excedents;
     }
     /**
-     * @brief Canvia l'etiqueta de les canonades amb el flux màxim.
-     * @param canonadas Map que conté els nodes i els seus nodes de destí amb els fluxos corresponents.
-     * @pre canonadas és un mapa vàlid de nodes i fluxos.
-     * @post Canvia l'etiqueta de les canonades al grafo per indicar el flux màxim.
+     * @brief Retorna les canonades del tall mínim de la component d'un node.
+     * @param node Node de la component.
+     * @return Les canonades que van d'un node del costat dels orígens a un node obert de l'altre costat.
+     * @pre node pertany a la xarxa.
+     * @post Retorna les canonades que limiten el flux màxim de la component: totes van plenes i la suma de les seves
+     * capacitats és fluxMaxim(node). Es treuen del resultat del flux màxim, sense cap recorregut més.
      */
-    public void canviarEtiquetaFluxMaxim(Map<Node, Map<Node, Float>> canonadas) {
-        for (Map.Entry<Node, Map<Node, Float>> entry : canonadas.entrySet()) {
-            Node nodeOrigen = entry.getKey();
-            Map<Node, Float> destins = entry.getValue();
-
-            for (Map.Entry<Node, Float> subEntry : destins.entrySet()) {
-                Node nodeDesti = subEntry.getKey();
-                Float flux = subEntry.getValue();
-
-                // Busca l'aresta (canonada) en el grafo
-                Edge edge = graph.getEdge(nodeOrigen.id() + "-" + nodeDesti.id());
-                if (edge == null) {
-                    edge = graph.getEdge(nodeDesti.id() + "-" + nodeOrigen.id());
-                }
-
-                // Si es troba l'aresta, actualitza l'etiqueta
-                if (edge != null) {
-                    Canonada canonada = (Canonada) edge.getAttribute("Canonada");
-                    if (canonada != null) {
-                        float capacitat = canonada.capacitat();
-                        String etiqueta = String.format("Flux: %.2f / %.2f", flux, capacitat);
-                        edge.setAttribute("ui.label", etiqueta);
-                    }
+    List<Canonada> tallMinim(Node node) {
+        fluxMaxim(node);
+        List<Canonada> tall = new ArrayList<>();
+        for (int v : membresComponent(node)) {
+            if (!motorFlux.costatFont(v)) continue;
+            for (int i = topologia.iniciSortides(v); i < topologia.fiSortides(v); i++) {
+                int w = topologia.destiSortida(i);
+                if (motorFlux.actiu(w) && !motorFlux.costatFont(w)) {
+                    tall.add(canonada(topologia.canonadaSortida(i)));
                 }
             }
         }
-        graph.display();
+        return tall;
+    }
+    /**
+     * @brief Retorna els nodes del costat dels orígens del tall mínim de la component d'un node.
+     * @param node Node de la component.
+     * @return Els nodes oberts als quals encara podria arribar més aigua des dels orígens.
+     * @pre node pertany a la xarxa.
+     * @post Retorna els nodes accessibles des dels orígens per la xarxa residual del flux màxim de la component.
+     */
+    List<Node> costatOrigen(Node node) {
+        fluxMaxim(node);
+        List<Node> costat = new ArrayList<>();
+        for (int v : membresComponent(node)) {
+            if (motorFlux.costatFont(v)) costat.add(registre.node(v));
+        }
+        return costat;
     }
 }